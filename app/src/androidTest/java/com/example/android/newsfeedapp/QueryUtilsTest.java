@@ -0,0 +1,62 @@
+package com.example.android.newsfeedapp;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the streaming parser of {@link QueryUtils} gives the same news of the JSONObject parser.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryUtilsTest {
+    private static final String FIXTURE = "search_response.json";
+
+    @Test
+    public void extractDataFromStream_sameAsFromString() throws Exception {
+        String json = readFixture(FIXTURE);
+        List<NewsList> expected = QueryUtils.extractData(json);
+        List<NewsList> actual = QueryUtils.extractData(toStream(json));
+        assertEquals(4, expected.size());
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void extractDataFromStream_truncatedResponse() throws Exception {
+        String json = readFixture(FIXTURE);
+        List<NewsList> expected = QueryUtils.extractData(json);
+        // cut the response in the middle of the third news, the news read before are kept
+        String truncated = json.substring(0, json.indexOf("Heatwave"));
+        List<NewsList> actual = QueryUtils.extractData(toStream(truncated));
+        assertEquals(expected.subList(0, 2).toString(), actual.toString());
+    }
+
+    @Test
+    public void extractDataFromStream_noResults() throws Exception {
+        String json = "{\"response\":{\"status\":\"ok\",\"total\":0}}";
+        assertTrue(QueryUtils.extractData(toStream(json)).isEmpty());
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+
+    private static String readFixture(String name) throws IOException {
+        InputStream inputStream = InstrumentationRegistry.getContext().getAssets().open(name);
+        try {
+            return new Scanner(inputStream, "UTF-8").useDelimiter("\\A").next();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prepares the bodies of the articles shown in {@link ReaderActivity}.
+ * The body is read from the {@link ArticleStore}, or downloaded when only the summary of the news is stored,
+ * and it is converted from HTML to styled text on a background thread. The converted bodies are kept in
+ * memory, so an article prefetched while its row was on screen opens at once.
+ * All the public methods are called on the main thread.
+ */
+public final class ArticleReader {
+    public static final String LOG_TAG = ArticleReader.class.getName();
+    //max number of chars of the bodies kept in memory, about 100 articles
+    private static final int MAX_CACHE_SIZE = 512 * 1024;
+
+    /**
+     * Receives the body of an article, on the main thread.
+     */
+    public interface Callback {
+        /**
+         * @param body the styled text of the body, or null if it is not available
+         */
+        void onBodyLoaded(NewsList news, CharSequence body);
+    }
+
+    private static ArticleReader sInstance;
+
+    private final ArticleStore mStore;
+    private final ConnectivityMonitor mConnectivityMonitor;
+    private final LruCache<String, CharSequence> mBodies = new LruCache<String, CharSequence>(MAX_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, CharSequence body) {
+            return body.length();
+        }
+    };
+    //the article opened is prepared on its own thread, so it does not wait for the prefetch of the rows
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService mPrefetcher = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    //the bodies being prepared, by key of the news, with who is waiting for them (used only on the main thread)
+    private final Map<String, List<Callback>> mPending = new HashMap<>();
+
+    private ArticleReader(Context context) {
+        mStore = ArticleStore.getInstance(context);
+        mConnectivityMonitor = ConnectivityMonitor.getInstance(context);
+    }
+
+    /**
+     * Return the single reader of the app, so the list and the reader share the same bodies.
+     */
+    public static synchronized ArticleReader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleReader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the body already prepared, or null if it has to be loaded.
+     */
+    public CharSequence getCached(NewsList news) {
+        return mBodies.get(news.getKey());
+    }
+
+    /**
+     * Give the body of the news to the callback: at once if it is already prepared, otherwise when it is ready.
+     */
+    public void load(NewsList news, Callback callback) {
+        CharSequence body = mBodies.get(news.getKey());
+        if (body != null) {
+            callback.onBodyLoaded(news, body);
+            return;
+        }
+        List<Callback> callbacks = mPending.get(news.getKey());
+        if (callbacks == null) {
+            callbacks = new ArrayList<>();
+            mPending.put(news.getKey(), callbacks);
+        }
+        callbacks.add(callback);
+        //a prefetch still waiting in the queue is not waited for, the first one that ends gives the body
+        mExecutor.execute(new PrepareTask(news, true, RateLimiter.Priority.INTERACTIVE));
+    }
+
+    /**
+     * Remove a callback that is not interested anymore, like the one of a reader that is closed.
+     */
+    public void cancel(NewsList news, Callback callback) {
+        List<Callback> callbacks = mPending.get(news.getKey());
+        if (callbacks != null) {
+            callbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Prepare in background the bodies of the news, usually the rows on screen, that are not ready yet.
+     * The bodies not stored are downloaded only on a network without a data plan, on the others
+     * they are downloaded when the news is opened.
+     */
+    public void prefetch(List<NewsList> news) {
+        boolean download = mConnectivityMonitor.getLinkType() == ConnectivityMonitor.LinkType.UNMETERED;
+        for (NewsList item : news) {
+            String key = item.getKey();
+            if (mBodies.get(key) == null && !mPending.containsKey(key)) {
+                mPending.put(key, new ArrayList<Callback>());
+                mPrefetcher.execute(new PrepareTask(item, download, RateLimiter.Priority.PREFETCH));
+            }
+        }
+    }
+
+    /**
+     * Reads or downloads the body of a news and converts it, then gives it to the callbacks waiting for it.
+     */
+    private class PrepareTask implements Runnable {
+        private final NewsList mNews;
+        //false to only read the body stored, without a request
+        private final boolean mDownload;
+        //the article opened is downloaded before the prefetched ones, which can be dropped
+        private final RateLimiter.Priority mPriority;
+
+        PrepareTask(NewsList news, boolean download, RateLimiter.Priority priority) {
+            mNews = news;
+            mDownload = download;
+            mPriority = priority;
+        }
+
+        @Override
+        public void run() {
+            //the body could have been prepared by another task meanwhile
+            CharSequence body = mBodies.get(mNews.getKey());
+            String html = null;
+            if (body == null) {
+                try {
+                    html = mStore.getBody(mNews.getKey());
+                } catch (SQLiteException e) {
+                    Log.e(LOG_TAG, "Problem reading the body", e);
+                }
+            }
+            if (body == null && html == null && mDownload) {
+                //only the summary is stored, the article is downloaded and stored for the next time
+                ArticleStore.Article article = QueryUtils.fetchArticle(mNews.getId(), mPriority, null);
+                if (article != null && !article.getBody().isEmpty()) {
+                    html = article.getBody();
+                }
+            }
+            if (html != null) {
+                body = NewsFormatter.formatBody(html);
+            }
+            final CharSequence result = body;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (result != null) {
+                        mBodies.put(mNews.getKey(), result);
+                    } else if (mPriority != RateLimiter.Priority.INTERACTIVE) {
+                        //a prefetch that did not get the body does not answer the reader opened meanwhile,
+                        //it waits for its own task, that downloads the body
+                        List<Callback> waiting = mPending.get(mNews.getKey());
+                        if (waiting != null && waiting.isEmpty()) {
+                            mPending.remove(mNews.getKey());
+                        }
+                        return;
+                    }
+                    List<Callback> callbacks = mPending.remove(mNews.getKey());
+                    if (callbacks == null) {
+                        //the body was already given by another task
+                        return;
+                    }
+                    for (Callback callback : callbacks) {
+                        callback.onBodyLoaded(mNews, result);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.android.newsfeedapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.android.newsfeedapp.NewsContract.ArticleEntry;
+import com.example.android.newsfeedapp.NewsContract.ArticleSearchEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Store of all the articles received from The Guardian API, with their body, in a full-text table.
+ * It is used to search without connection, with the same parameters of the requests.
+ * The articles are removed when they are too old or the store is too big.
+ */
+public final class ArticleStore {
+    public static final String LOG_TAG = ArticleStore.class.getName();
+    //articles older than this are removed from the disk
+    private static final long MAX_AGE = 30L * 24 * 60 * 60 * 1000; /* milliseconds */
+    //max size of the texts stored on disk
+    private static final long MAX_SIZE = 16L * 1024 * 1024; /* bytes */
+    //max number of articles ranked by relevance for a search
+    private static final int MAX_RANKED = 200;
+    //default number of results, as The Guardian API
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    //weight of a word found in each column of the full-text table, in the order of the columns
+    private static final int[] COLUMN_WEIGHTS = {4, 2, 2, 2, 1};
+
+    private static ArticleStore sInstance;
+
+    private final NewsDbHelper mDbHelper;
+    //the articles are written on this thread, so the parsing does not wait for the disk
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+
+    private ArticleStore(Context context) {
+        mDbHelper = NewsDbHelper.getInstance(context);
+    }
+
+    /**
+     * Return the single instance of the store, created with the application context.
+     */
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * An article as read from a response: the news shown in the list, with the id of its section and its body.
+     */
+    public static class Article {
+        private final NewsList mNews;
+        private final String mSectionId;
+        private final String mBody;
+
+        public Article(NewsList news, String sectionId, String body) {
+            mNews = news;
+            mSectionId = sectionId;
+            mBody = body;
+        }
+
+        //getter
+        public NewsList getNews() {
+            return mNews;
+        }
+
+        public String getSectionId() {
+            return mSectionId;
+        }
+
+        public String getBody() {
+            return mBody;
+        }
+    }
+
+    /**
+     * Store the articles in background, replacing the ones with the same key.
+     */
+    public void putAll(List<Article> articles) {
+        final List<Article> copy = new ArrayList<>(articles);
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(copy);
+                } catch (SQLiteException e) {
+                    Log.e(LOG_TAG, "Problem storing the articles", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Return the news stored that match the parameters of the request URL: q, section, order-by,
+     * page-size and page. This reads the database, so it has to be called on a background thread.
+     */
+    public List<NewsList> search(String requestUrl) {
+        Uri uri = Uri.parse(requestUrl);
+        String matchQuery = toMatchQuery(uri.getQueryParameter("q"));
+        String section = uri.getQueryParameter("section");
+        String orderBy = uri.getQueryParameter("order-by");
+        int pageSize = parseInt(uri.getQueryParameter("page-size"), DEFAULT_PAGE_SIZE);
+        int page = parseInt(uri.getQueryParameter("page"), 1);
+        int offset = (page - 1) * pageSize;
+        // relevance has a meaning only with a query, otherwise the news are the most recent ones like on the server
+        boolean byRelevance = matchQuery != null && (orderBy == null || orderBy.equals("relevance"));
+        String order = "oldest".equals(orderBy) ? " ASC" : " DESC";
+
+        List<String> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT a." + ArticleEntry.COLUMN_NEWS_ID
+                + ", a." + ArticleEntry.COLUMN_TITLE
+                + ", a." + ArticleEntry.COLUMN_SECTION_NAME
+                + ", a." + ArticleEntry.COLUMN_DATE
+                + ", a." + ArticleEntry.COLUMN_URL
+                + ", a." + ArticleEntry.COLUMN_AUTHOR
+                + ", a." + ArticleEntry.COLUMN_TRAIL_TEXT
+                + ", a." + ArticleEntry.COLUMN_THUMBNAIL);
+        if (matchQuery != null) {
+            sql.append(", offsets(" + ArticleSearchEntry.TABLE_NAME + ") FROM " + ArticleSearchEntry.TABLE_NAME
+                    + " JOIN " + ArticleEntry.TABLE_NAME + " a ON a." + ArticleEntry._ID + " = "
+                    + ArticleSearchEntry.TABLE_NAME + "." + ArticleSearchEntry.DOCID
+                    + " WHERE " + ArticleSearchEntry.TABLE_NAME + " MATCH ?");
+            args.add(matchQuery);
+        } else {
+            sql.append(" FROM " + ArticleEntry.TABLE_NAME + " a WHERE 1");
+        }
+        if (section != null && !section.isEmpty()) {
+            sql.append(" AND a." + ArticleEntry.COLUMN_SECTION_ID + " = ?");
+            args.add(section.toLowerCase());
+        }
+        sql.append(" ORDER BY a." + ArticleEntry.COLUMN_DATE + order);
+        if (byRelevance) {
+            // the matches are ranked here, then the page is taken from the ranked list
+            sql.append(" LIMIT " + MAX_RANKED);
+        } else {
+            sql.append(" LIMIT " + pageSize + " OFFSET " + offset);
+        }
+
+        final List<NewsList> news = new ArrayList<>();
+        final List<Integer> scores = new ArrayList<>();
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql.toString(), args.toArray(new String[args.size()]));
+        try {
+            while (cursor.moveToNext()) {
+                // the articles stored before version 3 have no picture
+                String thumbnail = cursor.isNull(7) ? "" : cursor.getString(7);
+                news.add(new NewsList(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4), cursor.getString(5), cursor.getString(6), thumbnail));
+                if (byRelevance) {
+                    scores.add(score(cursor.getString(8)));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        if (!byRelevance) {
+            return news;
+        }
+        // the sort is stable, so with the same score the most recent news comes first
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < news.size(); i++) {
+            positions.add(i);
+        }
+        Collections.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return scores.get(second).compareTo(scores.get(first));
+            }
+        });
+        List<NewsList> ranked = new ArrayList<>();
+        for (int i = offset; i < positions.size() && i < offset + pageSize; i++) {
+            ranked.add(news.get(positions.get(i)));
+        }
+        return ranked;
+    }
+
+    /**
+     * Return the HTML body of the article with the given key, or null if it is not stored or it has no body.
+     * This reads the database, so it has to be called on a background thread.
+     */
+    public String getBody(String key) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor cursor = db.query(ArticleEntry.TABLE_NAME, new String[]{ArticleEntry.COLUMN_BODY},
+                ArticleEntry.COLUMN_NEWS_KEY + "=?", new String[]{key}, null, null, null);
+        try {
+            if (cursor.moveToFirst() && !cursor.isNull(0) && !cursor.getString(0).isEmpty()) {
+                return cursor.getString(0);
+            }
+            return null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void write(List<Article> articles) {
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Article article : articles) {
+                NewsList news = article.getNews();
+                String key = news.getKey();
+                String body = article.getBody() == null ? "" : article.getBody();
+                // the old full-text row is removed, the article gets a new id when it is replaced
+                Cursor cursor = db.query(ArticleEntry.TABLE_NAME, new String[]{ArticleEntry._ID, ArticleEntry.COLUMN_BODY},
+                        ArticleEntry.COLUMN_NEWS_KEY + "=?", new String[]{key}, null, null, null);
+                try {
+                    if (cursor.moveToFirst()) {
+                        db.delete(ArticleSearchEntry.TABLE_NAME, ArticleSearchEntry.DOCID + "=?",
+                                new String[]{String.valueOf(cursor.getLong(0))});
+                        // a list loaded on a slow network has no bodies, the one stored before is kept
+                        if (body.isEmpty() && !cursor.isNull(1)) {
+                            body = cursor.getString(1);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+                ContentValues values = new ContentValues();
+                values.put(ArticleEntry.COLUMN_NEWS_KEY, key);
+                values.put(ArticleEntry.COLUMN_NEWS_ID, news.getId());
+                values.put(ArticleEntry.COLUMN_TITLE, news.getWebTitle());
+                values.put(ArticleEntry.COLUMN_SECTION_ID, article.getSectionId());
+                values.put(ArticleEntry.COLUMN_SECTION_NAME, news.getSectionName());
+                values.put(ArticleEntry.COLUMN_DATE, news.getWebPublicationDate());
+                values.put(ArticleEntry.COLUMN_URL, news.getWebUrl());
+                values.put(ArticleEntry.COLUMN_AUTHOR, news.getAuthor());
+                values.put(ArticleEntry.COLUMN_TRAIL_TEXT, news.getTrailText());
+                values.put(ArticleEntry.COLUMN_THUMBNAIL, news.getThumbnail());
+                values.put(ArticleEntry.COLUMN_BODY, body);
+                values.put(ArticleEntry.COLUMN_FETCHED_AT, now);
+                values.put(ArticleEntry.COLUMN_SIZE, body.length() + news.getWebTitle().length() + news.getTrailText().length());
+                long id = db.insertWithOnConflict(ArticleEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                if (id == -1) {
+                    continue;
+                }
+                ContentValues text = new ContentValues();
+                text.put(ArticleSearchEntry.DOCID, id);
+                text.put(ArticleSearchEntry.COLUMN_TITLE, news.getWebTitle());
+                text.put(ArticleSearchEntry.COLUMN_TRAIL_TEXT, NewsFormatter.stripHtml(news.getTrailText()));
+                text.put(ArticleSearchEntry.COLUMN_SECTION_NAME, news.getSectionName());
+                text.put(ArticleSearchEntry.COLUMN_AUTHOR, news.getAuthor());
+                text.put(ArticleSearchEntry.COLUMN_BODY, NewsFormatter.stripHtml(body));
+                db.insert(ArticleSearchEntry.TABLE_NAME, null, text);
+            }
+            evict(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Remove the articles older than the max age and then the oldest ones until the store fits its max size.
+     */
+    private static void evict(SQLiteDatabase db) {
+        long oldest = System.currentTimeMillis() - MAX_AGE;
+        Cursor cursor = db.query(ArticleEntry.TABLE_NAME, new String[]{ArticleEntry._ID, ArticleEntry.COLUMN_SIZE, ArticleEntry.COLUMN_FETCHED_AT},
+                null, null, null, null, ArticleEntry.COLUMN_FETCHED_AT + " DESC");
+        List<Long> removed = new ArrayList<>();
+        try {
+            long totalSize = 0;
+            while (cursor.moveToNext()) {
+                totalSize += cursor.getLong(1);
+                if (totalSize > MAX_SIZE || cursor.getLong(2) < oldest) {
+                    removed.add(cursor.getLong(0));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        for (long id : removed) {
+            String[] whereArgs = {String.valueOf(id)};
+            db.delete(ArticleSearchEntry.TABLE_NAME, ArticleSearchEntry.DOCID + "=?", whereArgs);
+            db.delete(ArticleEntry.TABLE_NAME, ArticleEntry._ID + "=?", whereArgs);
+        }
+    }
+
+    /**
+     * Convert the text of a search in a full-text query: every word has to be found, also as the start of a word.
+     * Return null if there are no words to search.
+     */
+    private static String toMatchQuery(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String word : SearchIndex.tokenize(query)) {
+            // the operators of The Guardian queries are not words to search
+            if (word.equals("and") || word.equals("or") || word.equals("not")) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    /**
+     * Compute the relevance of a match from the result of offsets(): groups of four numbers,
+     * the first of each group is the column where a word has been found.
+     */
+    private static int score(String offsets) {
+        int score = 0;
+        if (offsets == null || offsets.isEmpty()) {
+            return score;
+        }
+        String[] values = offsets.split(" ");
+        for (int i = 0; i + 3 < values.length; i += 4) {
+            int column = parseInt(values[i], -1);
+            if (column >= 0 && column < COLUMN_WEIGHTS.length) {
+                score += COLUMN_WEIGHTS[column];
+            }
+        }
+        return score;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.android.newsfeedapp;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.telephony.TelephonyManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows the network of the device and tells what kind of link it is, so the requests can be
+ * made for it (see {@link FetchProfile}). The changes are pushed by the system: from Lollipop with a
+ * network callback, before with the CONNECTIVITY_ACTION broadcast. The listeners are called on the main thread.
+ */
+public final class ConnectivityMonitor {
+    public static final String LOG_TAG = ConnectivityMonitor.class.getName();
+    //a link slower than this is slow also if its type would be fast
+    private static final int SLOW_BANDWIDTH = 400; /* kbps */
+
+    /**
+     * Kind of link to the network.
+     */
+    public enum LinkType {
+        //wifi or ethernet, without a data plan
+        UNMETERED,
+        //mobile data, or a wifi hotspot that is metered
+        METERED,
+        //2G or a link with low bandwidth
+        SLOW,
+        //no network
+        OFFLINE
+    }
+
+    /**
+     * Receives the changes of the link, on the main thread.
+     */
+    public interface Listener {
+        void onLinkChanged(LinkType previous, LinkType current);
+    }
+
+    private static ConnectivityMonitor sInstance;
+
+    private final ConnectivityManager mConnectivityManager;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> mListeners = new ArrayList<>();
+    private volatile LinkType mLinkType;
+
+    private ConnectivityMonitor(Context context) {
+        mConnectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        mLinkType = readLinkType();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            registerCallback();
+        } else {
+            context.registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    update();
+                }
+            }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        }
+    }
+
+    /**
+     * Return the single monitor of the app, created with the application context.
+     */
+    public static synchronized ConnectivityMonitor getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ConnectivityMonitor(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the kind of the link now, without asking the system.
+     */
+    public LinkType getLinkType() {
+        return mLinkType;
+    }
+
+    public boolean isConnected() {
+        return mLinkType != LinkType.OFFLINE;
+    }
+
+    /**
+     * Add a listener of the changes, it has to be removed when it is not needed anymore.
+     */
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void registerCallback() {
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                update();
+            }
+
+            @Override
+            public void onLost(Network network) {
+                update();
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                update();
+            }
+        };
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            //only the network used by the app is followed
+            mConnectivityManager.registerDefaultNetworkCallback(callback);
+        } else {
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            mConnectivityManager.registerNetworkCallback(request, callback);
+        }
+    }
+
+    //called on the thread of the system callback
+    private void update() {
+        final LinkType current = readLinkType();
+        final LinkType previous = mLinkType;
+        if (current == previous) {
+            return;
+        }
+        mLinkType = current;
+        //the round trips measured are the ones of the old network
+        RequestPolicy.reset();
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : new ArrayList<>(mListeners)) {
+                    listener.onLinkChanged(previous, current);
+                }
+            }
+        });
+    }
+
+    private LinkType readLinkType() {
+        NetworkInfo activeNetwork = mConnectivityManager.getActiveNetworkInfo();
+        if (activeNetwork == null || !activeNetwork.isConnectedOrConnecting()) {
+            return LinkType.OFFLINE;
+        }
+        int bandwidth = Integer.MAX_VALUE;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            bandwidth = readBandwidth();
+        }
+        return classify(true, mConnectivityManager.isActiveNetworkMetered(), activeNetwork.getType(),
+                activeNetwork.getSubtype(), bandwidth);
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private int readBandwidth() {
+        Network network = mConnectivityManager.getActiveNetwork();
+        NetworkCapabilities capabilities = network == null ? null : mConnectivityManager.getNetworkCapabilities(network);
+        return capabilities == null ? Integer.MAX_VALUE : capabilities.getLinkDownstreamBandwidthKbps();
+    }
+
+    /**
+     * Return the kind of a link from what the system tells about it.
+     *
+     * @param type          type of the network, like ConnectivityManager.TYPE_WIFI
+     * @param subtype       subtype of a mobile network, like TelephonyManager.NETWORK_TYPE_EDGE
+     * @param bandwidthKbps downstream bandwidth estimated by the system, Integer.MAX_VALUE if unknown
+     */
+    static LinkType classify(boolean connected, boolean metered, int type, int subtype, int bandwidthKbps) {
+        if (!connected) {
+            return LinkType.OFFLINE;
+        }
+        //the estimate is 0 when the system does not know it
+        if (bandwidthKbps > 0 && bandwidthKbps < SLOW_BANDWIDTH) {
+            return LinkType.SLOW;
+        }
+        if (type == ConnectivityManager.TYPE_MOBILE) {
+            switch (subtype) {
+                case TelephonyManager.NETWORK_TYPE_GPRS:
+                case TelephonyManager.NETWORK_TYPE_EDGE:
+                case TelephonyManager.NETWORK_TYPE_CDMA:
+                case TelephonyManager.NETWORK_TYPE_1xRTT:
+                case TelephonyManager.NETWORK_TYPE_IDEN:
+                    return LinkType.SLOW;
+                default:
+                    return LinkType.METERED;
+            }
+        }
+        return metered ? LinkType.METERED : LinkType.UNMETERED;
+    }
+}
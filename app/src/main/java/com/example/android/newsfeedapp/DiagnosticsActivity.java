@@ -0,0 +1,89 @@
+package com.example.android.newsfeedapp;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Shows the percentiles of the {@link Metrics} recorded since the app started, and saves them in a file.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+    public static final String LOG_TAG = DiagnosticsActivity.class.getName();
+
+    private TextView metricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+        metricsTextView = (TextView) findViewById(R.id.metrics_text_view);
+        //this removes all the values, so only the next loads are measured
+        Button clearButton = (Button) findViewById(R.id.clear_metrics);
+        clearButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                Metrics.clear();
+                showMetrics();
+            }
+        });
+        //this saves the table of the metrics in a text file
+        Button exportButton = (Button) findViewById(R.id.export_metrics);
+        exportButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                export();
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    private void showMetrics() {
+        if (Metrics.getSummaries().isEmpty()) {
+            metricsTextView.setText(R.string.no_metrics);
+        } else {
+            metricsTextView.setText(Metrics.report());
+        }
+    }
+
+    //the file is written in the folder of the app on the external storage, or in the internal one if it is missing
+    private void export() {
+        File folder = getExternalFilesDir(null);
+        if (folder == null) {
+            folder = getFilesDir();
+        }
+        File file = new File(folder, "metrics-" + System.currentTimeMillis() + ".txt");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+            writer.write(Metrics.report());
+            Toast.makeText(this, getString(R.string.metrics_exported, file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem exporting the metrics", e);
+            Toast.makeText(this, R.string.metrics_not_exported, Toast.LENGTH_LONG).show();
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the metrics file", e);
+                }
+            }
+        }
+    }
+}
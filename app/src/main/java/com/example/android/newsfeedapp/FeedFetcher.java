@@ -0,0 +1,167 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v4.os.CancellationSignal;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the requests of several sections at the same time and merges their news in a single feed,
+ * sorted by publication date. The news are merged as soon as each request answers, so the feed is
+ * ready when the slowest request ends. A news found in more than one section is shown once.
+ */
+public final class FeedFetcher {
+    public static final String LOG_TAG = FeedFetcher.class.getName();
+    //max number of section requests running at the same time
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+    private static final ExecutorService sExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_REQUESTS);
+
+    /**
+     * Receives the news of each request when it answers.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread of the fetch, once for every request that returned some news.
+         *
+         * @param url    URL of the request
+         * @param news   news of the request
+         * @param merged all the news received until now, merged and sorted
+         */
+        void onFeedUpdated(String url, List<NewsList> news, List<NewsList> merged);
+    }
+
+    //this have a private constructor because no one should create an instance of this class.
+    private FeedFetcher() {
+    }
+
+    /**
+     * Load all the requests in parallel and return their news merged. The feed is a success if at least
+     * one request succeeded, otherwise it has the status of the first request that failed; it is CANCELED
+     * if the signal is canceled.
+     *
+     * @param urls        URLs of the requests
+     * @param oldestFirst true to sort the feed from the oldest news, otherwise from the most recent
+     * @param priority    of the requests for the {@link RateLimiter}
+     * @param signal      cancels all the requests, can be null
+     * @param listener    receives the feed every time a request answers, can be null
+     */
+    public static FetchResult fetchAll(List<String> urls, boolean oldestFirst, final RateLimiter.Priority priority,
+                                       CancellationSignal signal, Listener listener) {
+        CompletionService<Result> completion = new ExecutorCompletionService<>(sExecutor);
+        // every request has its own signal, all of them are canceled with the signal of the feed
+        final List<CancellationSignal> signals = new ArrayList<>();
+        for (final String url : urls) {
+            final CancellationSignal requestSignal = new CancellationSignal();
+            signals.add(requestSignal);
+            completion.submit(new Callable<Result>() {
+                @Override
+                public Result call() throws Exception {
+                    // a request still waiting for a thread when the feed is canceled is not sent
+                    if (requestSignal.isCanceled()) {
+                        return new Result(url, new FetchResult(FetchResult.Status.CANCELED, 0));
+                    }
+                    return new Result(url, RequestPipeline.fetch(url, requestSignal, priority, null));
+                }
+            });
+        }
+        if (signal != null) {
+            signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    cancelAll(signals);
+                }
+            });
+        }
+        List<NewsList> merged = new ArrayList<>();
+        FetchResult.Status status = null;
+        int code = 0;
+        try {
+            for (int i = 0; i < urls.size(); i++) {
+                Result result = completion.take().get();
+                //a single section that answers is enough for the feed
+                if (result.mResult.isSuccess() || status == null) {
+                    status = result.mResult.getStatus();
+                    code = result.mResult.getCode();
+                }
+                List<NewsList> news = result.mResult.getPage().getNews();
+                if (news.isEmpty()) {
+                    continue;
+                }
+                merged = merge(merged, news, oldestFirst);
+                if (listener != null) {
+                    listener.onFeedUpdated(result.mUrl, news, new ArrayList<>(merged));
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelAll(signals);
+            Thread.currentThread().interrupt();
+            return new FetchResult(FetchResult.Status.CANCELED, 0);
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem loading the feed", e);
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+        }
+        if (signal != null && signal.isCanceled()) {
+            return new FetchResult(FetchResult.Status.CANCELED, 0);
+        }
+        return new FetchResult(status == null ? FetchResult.Status.NETWORK_ERROR : status, new NewsPage(1, 1, merged), code);
+    }
+
+    /**
+     * Return a new list with the news of both lists sorted by publication date, without the news of
+     * the second list that are already in the first one.
+     */
+    public static List<NewsList> merge(List<NewsList> feed, List<NewsList> news, final boolean oldestFirst) {
+        List<NewsList> merged = new ArrayList<>(feed);
+        Set<String> keys = new HashSet<>();
+        for (NewsList item : feed) {
+            keys.add(item.getKey());
+        }
+        for (NewsList item : news) {
+            if (keys.add(item.getKey())) {
+                merged.add(item);
+            }
+        }
+        // the dates are already parsed, so they are compared as numbers
+        Collections.sort(merged, new Comparator<NewsList>() {
+            @Override
+            public int compare(NewsList first, NewsList second) {
+                int byDate = NewsList.compareByDate(first, second);
+                return oldestFirst ? byDate : -byDate;
+            }
+        });
+        return merged;
+    }
+
+    private static void cancelAll(List<CancellationSignal> signals) {
+        for (CancellationSignal signal : signals) {
+            signal.cancel();
+        }
+    }
+
+    /**
+     * The result of the request of a section.
+     */
+    private static class Result {
+        private final String mUrl;
+        private final FetchResult mResult;
+
+        Result(String url, FetchResult result) {
+            mUrl = url;
+            mResult = result;
+        }
+    }
+}
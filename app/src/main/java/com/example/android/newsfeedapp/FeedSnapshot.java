@@ -0,0 +1,187 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The first news of the feed shown last, saved in a small binary file so {@link MainActivity} can show
+ * them in its first frame, before the loader reads the database and the network answers.
+ * The file has the values already parsed (the dates as numbers) and it is read with a single sequential read.
+ */
+public final class FeedSnapshot {
+    public static final String LOG_TAG = FeedSnapshot.class.getName();
+    private static final String FILE_NAME = "feed_snapshot.bin";
+    //start of the file, followed by the version of the format
+    private static final int MAGIC = 0x4e465331;
+    private static final int VERSION = 1;
+    //only the news of the first screens are saved, so the file is read in a few milliseconds
+    private static final int MAX_NEWS = 30;
+    //an older snapshot is not shown, the news would be too old
+    private static final long MAX_AGE = 7L * 24 * 60 * 60 * 1000; /* milliseconds */
+    //no value of a news is longer than this
+    private static final int MAX_STRING_LENGTH = 64 * 1024; /* bytes */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    //the snapshot is written on this thread, after the news are shown
+    private static final ExecutorService sWriter = Executors.newSingleThreadExecutor();
+    //the news of the last snapshot written, so the same list is not written again
+    private static List<NewsList> sLastWritten;
+
+    //this have a private constructor because no one should create an instance of this class.
+    private FeedSnapshot() {
+    }
+
+    /**
+     * Return the news of the snapshot, or null if there is none or it is too old.
+     * It reads a small file, so it can be called on the main thread while the activity is created.
+     */
+    public static List<NewsList> read(Context context) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+            long savedAt = input.readLong();
+            if (System.currentTimeMillis() - savedAt > MAX_AGE) {
+                return null;
+            }
+            int count = input.readInt();
+            if (count < 0 || count > MAX_NEWS) {
+                throw new IOException("Snapshot damaged");
+            }
+            List<NewsList> news = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String id = readString(input);
+                String webTitle = readString(input);
+                String sectionName = readString(input);
+                long publishedAt = input.readLong();
+                String date = publishedAt == NewsFormatter.NO_DATE ? readString(input) : NewsFormatter.formatIsoDate(publishedAt);
+                String webUrl = readString(input);
+                String author = readString(input);
+                String trailText = readString(input);
+                String thumbnail = readString(input);
+                news.add(new NewsList(id, webTitle, sectionName, date, webUrl, author, trailText, thumbnail));
+            }
+            synchronized (FeedSnapshot.class) {
+                sLastWritten = news;
+            }
+            return news;
+        } catch (FileNotFoundException e) {
+            //the app has never shown a feed
+            return null;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading the snapshot", e);
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Save the first news of the feed in background, replacing the snapshot before.
+     */
+    public static void write(Context context, List<NewsList> news) {
+        final File folder = context.getApplicationContext().getFilesDir();
+        final List<NewsList> saved = new ArrayList<>(news.subList(0, Math.min(MAX_NEWS, news.size())));
+        synchronized (FeedSnapshot.class) {
+            if (saved.isEmpty() || saved.equals(sLastWritten)) {
+                return;
+            }
+            sLastWritten = saved;
+        }
+        sWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeFile(folder, saved);
+            }
+        });
+    }
+
+    private static void writeFile(File folder, List<NewsList> news) {
+        //the file is written with another name and then renamed, so a snapshot is never read half written
+        File temporary = new File(folder, FILE_NAME + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(System.currentTimeMillis());
+            output.writeInt(news.size());
+            for (NewsList item : news) {
+                writeString(output, item.getId());
+                writeString(output, item.getWebTitle());
+                writeString(output, item.getSectionName());
+                output.writeLong(item.getPublishedAt());
+                if (item.getPublishedAt() == NewsFormatter.NO_DATE) {
+                    writeString(output, item.getWebPublicationDate());
+                }
+                writeString(output, item.getWebUrl());
+                writeString(output, item.getAuthor());
+                writeString(output, item.getTrailText());
+                writeString(output, item.getThumbnail());
+            }
+            output.close();
+            output = null;
+            if (!temporary.renameTo(new File(folder, FILE_NAME))) {
+                Log.e(LOG_TAG, "Problem renaming the snapshot");
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the snapshot", e);
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    //a string is written as the length of its UTF-8 bytes and the bytes, -1 for null
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        //a wrong length means the file is damaged, it is not allocated
+        if (length > MAX_STRING_LENGTH) {
+            throw new IOException("Snapshot damaged");
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem closing the snapshot", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.newsfeedapp;
+
+/**
+ * What the app downloads for the list on each kind of network (see {@link ConnectivityMonitor}).
+ * On a fast network without a data plan the whole articles are downloaded, so they can be read offline;
+ * on the other networks only what the list shows, and the body of a news is downloaded when it is opened.
+ */
+public enum FetchProfile {
+    //the list with the bodies, the number of news chosen in the settings
+    FULL("all", Integer.MAX_VALUE),
+    //only the short description and the picture, and a smaller page
+    LIGHT("trailText,thumbnail", 10),
+    //as LIGHT, with a page that arrives quickly also on 2G
+    MINIMAL("trailText,thumbnail", 5),
+    //nothing is requested, the news come from the cache and the stored articles
+    OFFLINE("all", Integer.MAX_VALUE);
+
+    private final String mShowFields;
+    private final int mMaxPageSize;
+
+    FetchProfile(String showFields, int maxPageSize) {
+        mShowFields = showFields;
+        mMaxPageSize = maxPageSize;
+    }
+
+    /**
+     * Return the profile to use on the given link.
+     */
+    public static FetchProfile forLink(ConnectivityMonitor.LinkType linkType) {
+        switch (linkType) {
+            case UNMETERED:
+                return FULL;
+            case METERED:
+                return LIGHT;
+            case SLOW:
+                return MINIMAL;
+            default:
+                return OFFLINE;
+        }
+    }
+
+    //getter
+    public String getShowFields() {
+        return mShowFields;
+    }
+
+    /**
+     * Return the number of news to request, never more than the ones chosen in the settings.
+     */
+    public int getPageSize(int chosen) {
+        return Math.min(chosen, mMaxPageSize);
+    }
+
+    /**
+     * Return true if the network must not be used at all.
+     */
+    public boolean isOffline() {
+        return this == OFFLINE;
+    }
+
+    /**
+     * Return true if the bodies of the news are downloaded with the list.
+     */
+    public boolean hasBodies() {
+        return "all".equals(mShowFields);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.newsfeedapp;
+
+import java.util.ArrayList;
+
+/**
+ * Result of a request to The Guardian API: the page of news and how the request ended, so a failure
+ * is not mistaken for a search without results.
+ */
+public class FetchResult {
+    /**
+     * How a request ended.
+     */
+    public enum Status {
+        //the whole response has been read, from the network or from the cache
+        SUCCESS,
+        //the response was truncated or malformed, the page has only the news read before the problem
+        PARTIAL,
+        //the server answered with an error code
+        HTTP_ERROR,
+        //the server did not answer in time
+        TIMEOUT,
+        //no connection, or it was lost before the answer
+        NETWORK_ERROR,
+        //nobody needs the result anymore
+        CANCELED,
+        //not sent, the budget of requests is kept for the ones of higher priority (see RateLimiter)
+        THROTTLED
+    }
+
+    private final Status mStatus;
+    private final NewsPage mPage;
+    private final int mCode;
+    private int mAttempts = 1;
+
+    /**
+     * Constructor
+     *
+     * @param status how the request ended
+     * @param page   page of news, empty if the request failed
+     * @param code   HTTP status code of the response, 0 if there is no response
+     */
+    public FetchResult(Status status, NewsPage page, int code) {
+        mStatus = status;
+        mPage = page;
+        mCode = code;
+    }
+
+    /**
+     * Constructor of a failed request, with an empty page.
+     */
+    public FetchResult(Status status, int code) {
+        this(status, new NewsPage(), code);
+    }
+
+    //getter
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    public NewsPage getPage() {
+        return mPage;
+    }
+
+    public int getCode() {
+        return mCode;
+    }
+
+    /**
+     * Return how many times the request has been sent, retries included.
+     */
+    public int getAttempts() {
+        return mAttempts;
+    }
+
+    //setter
+    public void setAttempts(int attempts) {
+        mAttempts = attempts;
+    }
+
+    /**
+     * Return true if the whole response has been read, also when it has no news.
+     */
+    public boolean isSuccess() {
+        return mStatus == Status.SUCCESS;
+    }
+
+    public boolean isCanceled() {
+        return mStatus == Status.CANCELED;
+    }
+
+    /**
+     * Return a copy with its own list of news, so every caller of a shared request can change it.
+     */
+    public FetchResult copy() {
+        NewsPage page = new NewsPage(mPage.getCurrentPage(), mPage.getPages(), new ArrayList<>(mPage.getNews()));
+        FetchResult copy = new FetchResult(mStatus, page, mCode);
+        copy.mAttempts = mAttempts;
+        return copy;
+    }
+}
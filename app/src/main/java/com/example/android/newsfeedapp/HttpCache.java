@@ -0,0 +1,205 @@
+package com.example.android.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory HTTP cache of the responses received from The Guardian API.
+ * For each canonical request URL it keeps the validators (ETag and Last-Modified),
+ * the freshness lifetime given by Cache-Control and the page of news already parsed.
+ */
+public final class HttpCache {
+    //max number of responses kept, the least recently used is removed first
+    private static final int MAX_ENTRIES = 30;
+
+    private static final Map<String, Entry> sEntries = new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    //this have a private constructor because no one should create an instance of this class.
+    private HttpCache() {
+    }
+
+    /**
+     * Return the cached response for the given canonical URL, or null if there is none.
+     */
+    public static synchronized Entry get(String canonicalUrl) {
+        return sEntries.get(canonicalUrl);
+    }
+
+    /**
+     * Store the response for the given canonical URL, replacing the previous one.
+     */
+    public static synchronized void put(String canonicalUrl, Entry entry) {
+        sEntries.put(canonicalUrl, entry);
+    }
+
+    /**
+     * Remove all the cached responses.
+     */
+    public static synchronized void clear() {
+        sEntries.clear();
+    }
+
+    /**
+     * Return the URL with the query parameters sorted by name, so the same request built with the
+     * parameters in a different order uses the same cache entry. Scheme and host are lower case.
+     */
+    public static String canonicalUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        //the fragment is never sent to the server
+        int hashIndex = url.indexOf('#');
+        String base = hashIndex >= 0 ? url.substring(0, hashIndex) : url;
+        String query = "";
+        int queryIndex = base.indexOf('?');
+        if (queryIndex >= 0) {
+            query = base.substring(queryIndex + 1);
+            base = base.substring(0, queryIndex);
+        }
+        //only scheme and host are case insensitive, the path is kept as it is
+        int hostEnd = base.indexOf('/', base.indexOf("://") + 3);
+        if (hostEnd < 0) {
+            hostEnd = base.length();
+        }
+        StringBuilder canonical = new StringBuilder(base.substring(0, hostEnd).toLowerCase(Locale.US));
+        canonical.append(base.substring(hostEnd));
+        if (!query.isEmpty()) {
+            String[] parameters = query.split("&");
+            //the sort is stable, so repeated parameters keep their order
+            Arrays.sort(parameters, new Comparator<String>() {
+                @Override
+                public int compare(String first, String second) {
+                    return parameterName(first).compareTo(parameterName(second));
+                }
+            });
+            char separator = '?';
+            for (String parameter : parameters) {
+                if (parameter.isEmpty()) {
+                    continue;
+                }
+                canonical.append(separator).append(parameter);
+                separator = '&';
+            }
+        }
+        return canonical.toString();
+    }
+
+    private static String parameterName(String parameter) {
+        int equalIndex = parameter.indexOf('=');
+        return equalIndex >= 0 ? parameter.substring(0, equalIndex) : parameter;
+    }
+
+    /**
+     * Return the number of seconds a response can be used without asking the server, from the
+     * Cache-Control and Age headers. It returns 0 when the response has to be validated every time.
+     */
+    public static long freshnessLifetime(String cacheControl, String age) {
+        if (cacheControl == null) {
+            return 0;
+        }
+        long maxAge = 0;
+        for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-cache") || directive.equals("no-store")) {
+                return 0;
+            }
+            if (directive.startsWith("max-age=")) {
+                maxAge = parseSeconds(directive.substring("max-age=".length()));
+            }
+        }
+        return Math.max(0, maxAge - parseSeconds(age));
+    }
+
+    /**
+     * Return true if the response can be stored, so it is not marked as no-store.
+     */
+    public static boolean isCacheable(String cacheControl) {
+        return cacheControl == null || !cacheControl.toLowerCase(Locale.US).contains("no-store");
+    }
+
+    private static long parseSeconds(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A cached response: the validators sent back to the server and the news parsed from the body.
+     */
+    public static class Entry {
+        private final String mETag;
+        private final String mLastModified;
+        private final long mExpiresAt;
+        private final NewsPage mPage;
+
+        /**
+         * Constructor
+         *
+         * @param eTag         value of the ETag header, or null
+         * @param lastModified value of the Last-Modified header, or null
+         * @param expiresAt    time in milliseconds until the response is fresh
+         * @param page         page of news parsed from the response
+         */
+        public Entry(String eTag, String lastModified, long expiresAt, NewsPage page) {
+            mETag = eTag;
+            mLastModified = lastModified;
+            mExpiresAt = expiresAt;
+            mPage = new NewsPage(page.getCurrentPage(), page.getPages(), new ArrayList<>(page.getNews()));
+        }
+
+        //getter
+        public String getETag() {
+            return mETag;
+        }
+
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        public long getExpiresAt() {
+            return mExpiresAt;
+        }
+
+        /**
+         * Return a copy of the cached page, so the caller can change it without touching the cache.
+         */
+        public NewsPage getPage() {
+            return new NewsPage(mPage.getCurrentPage(), mPage.getPages(), new ArrayList<>(mPage.getNews()));
+        }
+
+        /**
+         * Return true if the response can be used without asking the server.
+         */
+        public boolean isFresh(long now) {
+            return now < mExpiresAt;
+        }
+
+        /**
+         * Return true if the response can be validated with a conditional request.
+         */
+        public boolean hasValidators() {
+            return mETag != null || mLastModified != null;
+        }
+
+        /**
+         * Return a copy of this entry with a new expiration time, used when the server answers 304.
+         */
+        public Entry withExpiresAt(long expiresAt) {
+            return new Entry(mETag, mLastModified, expiresAt, mPage);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v4.os.CancellationSignal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Transport used by {@link QueryUtils} to make the HTTP requests to The Guardian API.
+ */
+public interface HttpTransport {
+
+    /**
+     * Make a GET request to the given URL, adding the given request headers.
+     * The returned response has to be closed, so its connection can be used again.
+     * When the signal is canceled the request is aborted, also while its body is being read.
+     *
+     * @param connectTimeout max time to open the connection, in milliseconds
+     * @param readTimeout    max time waiting for the next bytes of the response, in milliseconds
+     */
+    Response get(String url, Map<String, String> headers, long connectTimeout, long readTimeout,
+                 CancellationSignal signal) throws IOException;
+
+    /**
+     * Response of a request: status code, headers and body.
+     */
+    interface Response extends Closeable {
+        int getCode();
+
+        /**
+         * Return the value of the response header, or null if it is missing.
+         */
+        String getHeader(String name);
+
+        /**
+         * Return the body of the response, already decompressed.
+         */
+        InputStream getBody() throws IOException;
+    }
+}
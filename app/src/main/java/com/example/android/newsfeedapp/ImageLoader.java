@@ -0,0 +1,499 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.os.CancellationSignal;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the pictures of the news in the rows of the list.
+ * The decoded bitmaps are kept in memory (up to 1/8 of the heap of the app), the downloaded files on disk
+ * (up to 10 MB), so a picture is downloaded only once. The pictures are decoded on a background pool,
+ * already reduced to the size of the row, reusing the memory of the bitmaps removed from the cache.
+ * The load of a row that is recycled is canceled, and the same picture asked by two rows is loaded once.
+ * All the public methods are called on the main thread.
+ */
+public final class ImageLoader {
+    public static final String LOG_TAG = ImageLoader.class.getName();
+    //number of pictures loaded at the same time
+    private static final int POOL_SIZE = 3;
+    //folder in the cache of the app, and the max size of the files in it
+    private static final String DISK_CACHE_FOLDER = "thumbnails";
+    private static final long MAX_DISK_CACHE_SIZE = 10 * 1024 * 1024;
+    //a bigger file is not a thumbnail, it is not downloaded
+    private static final int MAX_IMAGE_SIZE = 2 * 1024 * 1024;
+    //max number of bitmaps kept to be reused
+    private static final int MAX_REUSABLE_BITMAPS = 8;
+
+    private static ImageLoader sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final File mDiskCacheFolder;
+    //total size of the files on disk, -1 until it is computed
+    private long mDiskCacheSize = -1;
+    private final Object mDiskLock = new Object();
+    //the pictures are not downloaded with the transport of the requests, so they do not wait for each other,
+    //and their times are not recorded with the ones of the API
+    private final HttpTransport mTransport = new OkHttpTransport(false);
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(POOL_SIZE);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    //the loads running, by memory key, and the load of each view (used only on the main thread)
+    private final Map<String, LoadTask> mTasks = new HashMap<>();
+    private final Map<ImageView, LoadTask> mViewTasks = new WeakHashMap<>();
+    private final Map<ImageView, Bitmap> mViewBitmaps = new WeakHashMap<>();
+    //bitmaps shown now, with the number of views showing them, and the ones removed from the cache while shown:
+    //a bitmap is reused only when it is not shown anymore (guarded by mReusable). The maps are weak, so the
+    //bitmaps of the views destroyed without being cleared are not kept.
+    private final Map<Bitmap, Integer> mShown = new WeakHashMap<>();
+    private final Set<Bitmap> mEvictedWhileShown = Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+    private final List<Bitmap> mReusable = new ArrayList<>();
+
+    private ImageLoader(Context context) {
+        // the size of the memory cache is measured in bytes
+        int cacheSize = (int) (Runtime.getRuntime().maxMemory() / 8);
+        mMemoryCache = new LruCache<String, Bitmap>(cacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    onEvicted(oldValue);
+                }
+            }
+        };
+        mDiskCacheFolder = new File(context.getCacheDir(), DISK_CACHE_FOLDER);
+    }
+
+    /**
+     * Return the single loader of the app, so all the lists share the same caches.
+     */
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ImageLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Show the picture in the view, decoded at least as big as the given size.
+     * The load started before for the same view is canceled.
+     */
+    public void load(String url, ImageView view, int width, int height) {
+        String key = url + "@" + width + "x" + height;
+        LoadTask current = mViewTasks.get(view);
+        if (current != null && current.mKey.equals(key)) {
+            return;
+        }
+        clear(view);
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        Bitmap cached = mMemoryCache.get(key);
+        if (cached != null) {
+            show(view, cached);
+            return;
+        }
+        // the same picture already loading for another row is shared
+        LoadTask task = mTasks.get(key);
+        if (task == null) {
+            task = new LoadTask(key, url, width, height);
+            mTasks.put(key, task);
+            task.mFuture = mExecutor.submit(task);
+        }
+        task.mViews.add(view);
+        mViewTasks.put(view, task);
+    }
+
+    /**
+     * Remove the picture from the view, and cancel its load if no other view is waiting for it.
+     * It is called when a row is recycled.
+     */
+    public void clear(ImageView view) {
+        LoadTask task = mViewTasks.remove(view);
+        if (task != null) {
+            task.mViews.remove(view);
+            if (task.mViews.isEmpty()) {
+                task.cancel();
+                if (mTasks.get(task.mKey) == task) {
+                    mTasks.remove(task.mKey);
+                }
+            }
+        }
+        view.setImageDrawable(null);
+        Bitmap shown = mViewBitmaps.remove(view);
+        if (shown != null) {
+            onHidden(shown);
+        }
+    }
+
+    private void show(ImageView view, Bitmap bitmap) {
+        synchronized (mReusable) {
+            Integer count = mShown.get(bitmap);
+            mShown.put(bitmap, count == null ? 1 : count + 1);
+        }
+        mViewBitmaps.put(view, bitmap);
+        view.setImageBitmap(bitmap);
+    }
+
+    //a bitmap removed from the cache can be reused, if no view shows it
+    private void onEvicted(Bitmap bitmap) {
+        synchronized (mReusable) {
+            if (mShown.containsKey(bitmap)) {
+                mEvictedWhileShown.add(bitmap);
+            } else {
+                addReusable(bitmap);
+            }
+        }
+    }
+
+    private void onHidden(Bitmap bitmap) {
+        synchronized (mReusable) {
+            Integer count = mShown.get(bitmap);
+            if (count == null || count <= 1) {
+                mShown.remove(bitmap);
+                if (mEvictedWhileShown.remove(bitmap)) {
+                    addReusable(bitmap);
+                }
+            } else {
+                mShown.put(bitmap, count - 1);
+            }
+        }
+    }
+
+    //guarded by mReusable
+    private void addReusable(Bitmap bitmap) {
+        if (bitmap.isMutable() && mReusable.size() < MAX_REUSABLE_BITMAPS) {
+            mReusable.add(bitmap);
+        }
+    }
+
+    /**
+     * Return a bitmap whose memory can be used to decode the picture, or null if there is none.
+     * Before KitKat the bitmap has to be of the same size, and the picture cannot be reduced.
+     */
+    private Bitmap takeReusable(BitmapFactory.Options options) {
+        synchronized (mReusable) {
+            Iterator<Bitmap> iterator = mReusable.iterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (bitmap.isRecycled()) {
+                    iterator.remove();
+                    continue;
+                }
+                boolean fits;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+                    int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+                    // RGB_565 uses 2 bytes for each pixel
+                    fits = bitmap.getConfig() == options.inPreferredConfig && width * height * 2 <= bitmap.getAllocationByteCount();
+                } else {
+                    fits = options.inSampleSize == 1 && bitmap.getWidth() == options.outWidth && bitmap.getHeight() == options.outHeight;
+                }
+                if (fits) {
+                    iterator.remove();
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode the picture reduced by a power of 2, as long as it stays at least as big as the view,
+     * so a picture of 1000 pixels is never decoded whole for a view of 100.
+     */
+    private Bitmap decode(byte[] data, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        // the thumbnails have no transparency, so they use half of the memory of ARGB_8888
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inMutable = true;
+        options.inBitmap = takeReusable(options);
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            // the bitmap could not be reused, the picture is decoded in a new one
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+    }
+
+    /**
+     * Return the largest power of 2 that keeps both sides of the picture at least as big as the requested ones.
+     */
+    static int calculateInSampleSize(int width, int height, int requestedWidth, int requestedHeight) {
+        int inSampleSize = 1;
+        if (requestedWidth <= 0 || requestedHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= requestedWidth && height / (inSampleSize * 2) >= requestedHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Download the picture, return null if it is not available.
+     */
+    private byte[] download(String url, CancellationSignal signal) throws IOException {
+        HttpTransport.Response response = mTransport.get(url, Collections.<String, String>emptyMap(),
+                RequestPolicy.getConnectTimeout(), RequestPolicy.getReadTimeout(), signal);
+        try {
+            if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
+                return null;
+            }
+            InputStream input = response.getBody();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+                if (output.size() > MAX_IMAGE_SIZE) {
+                    Log.e(LOG_TAG, "Picture too big: " + url);
+                    return null;
+                }
+            }
+            return output.toByteArray();
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            response.close();
+        }
+    }
+
+    //the files are named by the hash of the URL
+    private File diskCacheFile(String url) {
+        return new File(mDiskCacheFolder, hash(url));
+    }
+
+    private byte[] readFromDisk(String url) {
+        synchronized (mDiskLock) {
+            File file = diskCacheFile(url);
+            if (!file.exists()) {
+                return null;
+            }
+            byte[] data = new byte[(int) file.length()];
+            InputStream input = null;
+            try {
+                input = new FileInputStream(file);
+                int offset = 0;
+                while (offset < data.length) {
+                    int read = input.read(data, offset, data.length - offset);
+                    if (read < 0) {
+                        return null;
+                    }
+                    offset += read;
+                }
+                //the files used last are the last to be removed
+                file.setLastModified(System.currentTimeMillis());
+                return data;
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem reading the cached picture", e);
+                return null;
+            } finally {
+                closeQuietly(input);
+            }
+        }
+    }
+
+    private void writeToDisk(String url, byte[] data) {
+        synchronized (mDiskLock) {
+            if (!mDiskCacheFolder.exists() && !mDiskCacheFolder.mkdirs()) {
+                return;
+            }
+            if (mDiskCacheSize < 0) {
+                mDiskCacheSize = 0;
+                File[] files = mDiskCacheFolder.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        mDiskCacheSize += file.length();
+                    }
+                }
+            }
+            // the file is written with another name, so a file half written is never read
+            File file = diskCacheFile(url);
+            File temp = new File(mDiskCacheFolder, file.getName() + ".tmp");
+            OutputStream output = null;
+            try {
+                output = new FileOutputStream(temp);
+                output.write(data);
+                output.close();
+                output = null;
+                long oldSize = file.length();
+                if (temp.renameTo(file)) {
+                    mDiskCacheSize += data.length - oldSize;
+                }
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem saving the picture", e);
+            } finally {
+                closeQuietly(output);
+                temp.delete();
+            }
+            trimDiskCache();
+        }
+    }
+
+    //the files used least recently are removed until the cache is within its size, guarded by mDiskLock
+    private void trimDiskCache() {
+        if (mDiskCacheSize <= MAX_DISK_CACHE_SIZE) {
+            return;
+        }
+        File[] files = mDiskCacheFolder.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Long.valueOf(first.lastModified()).compareTo(second.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (mDiskCacheSize <= MAX_DISK_CACHE_SIZE * 3 / 4) {
+                break;
+            }
+            long size = file.length();
+            if (file.delete()) {
+                mDiskCacheSize -= size;
+            }
+        }
+    }
+
+    private static String hash(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest.digest(url.getBytes(Charset.forName("UTF-8")))) {
+                name.append(String.format("%02x", b));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return String.valueOf(url.hashCode());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem closing the file", e);
+            }
+        }
+    }
+
+    /**
+     * Load of a picture at a size, for all the views waiting for it.
+     */
+    private class LoadTask implements Runnable {
+        private final String mKey;
+        private final String mUrl;
+        private final int mWidth;
+        private final int mHeight;
+        private final CancellationSignal mSignal = new CancellationSignal();
+        //the views waiting for the picture, used only on the main thread
+        private final List<ImageView> mViews = new ArrayList<>();
+        private Future<?> mFuture;
+
+        LoadTask(String key, String url, int width, int height) {
+            mKey = key;
+            mUrl = url;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        //a load still waiting for a thread is not started, a download running is aborted
+        void cancel() {
+            mSignal.cancel();
+            if (mFuture != null) {
+                mFuture.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
+            try {
+                byte[] data = readFromDisk(mUrl);
+                if (data == null && !mSignal.isCanceled()) {
+                    data = download(mUrl, mSignal);
+                    if (data != null) {
+                        writeToDisk(mUrl, data);
+                    }
+                }
+                if (data != null && !mSignal.isCanceled()) {
+                    bitmap = decode(data, mWidth, mHeight);
+                }
+            } catch (IOException e) {
+                if (!mSignal.isCanceled()) {
+                    Log.e(LOG_TAG, "Problem loading the picture: " + e.getMessage());
+                }
+            }
+            final Bitmap result = bitmap;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    //the cache is changed only here, so a bitmap is not reused before it is shown
+                    if (result != null) {
+                        mMemoryCache.put(mKey, result);
+                    }
+                    if (mTasks.get(mKey) == LoadTask.this) {
+                        mTasks.remove(mKey);
+                    }
+                    for (ImageView view : mViews) {
+                        if (mViewTasks.get(view) == LoadTask.this) {
+                            mViewTasks.remove(view);
+                            if (result != null) {
+                                show(view, result);
+                            }
+                        }
+                    }
+                    mViews.clear();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.android.newsfeedapp;
+
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers a request with the news already loaded, when the preferences change only how the same news
+ * are sorted or which of the sections already loaded are shown. The lists are the ones kept in memory
+ * by the {@link NewsCache}, so the answer is ready at once, on the main thread.
+ * A request that needs other news, like the relevance of a search or a section never loaded, is not answered.
+ */
+public final class LocalQuery {
+    public static final String LOG_TAG = LocalQuery.class.getName();
+    //the orders of the requests that are only a sort by publication date
+    private static final String[] DATE_ORDERS = {"newest", "oldest", "relevance"};
+
+    //this have a private constructor because no one should create an instance of this class.
+    private LocalQuery() {
+    }
+
+    /**
+     * Return the news of the requests made with the news loaded before, sorted and merged as the
+     * server would do with the first pages, or null if they have to be requested.
+     *
+     * @param urls URLs of the first page of the requests, one for each section
+     */
+    public static List<NewsList> answer(NewsCache cache, List<String> urls) {
+        if (urls.isEmpty()) {
+            return null;
+        }
+        List<NewsList> merged = new ArrayList<>();
+        boolean oldestFirst = false;
+        for (String url : urls) {
+            Uri uri = Uri.parse(url);
+            String orderBy = uri.getQueryParameter("order-by");
+            String query = uri.getQueryParameter("q");
+            if (!isDateOrder(orderBy, query)) {
+                return null;
+            }
+            oldestFirst = "oldest".equals(orderBy);
+            //the same request sorted in another way has the same news
+            List<NewsList> news = null;
+            for (String order : DATE_ORDERS) {
+                if (news == null && isDateOrder(order, query)) {
+                    news = cache.getFromMemory(replaceParameter(url, "order-by", order));
+                }
+            }
+            if (news == null) {
+                return null;
+            }
+            merged = FeedFetcher.merge(merged, news, oldestFirst);
+        }
+        return merged;
+    }
+
+    /**
+     * Return true if the order is a sort by publication date. Without a query also the relevance is,
+     * with a query the most relevant news are not the most recent ones.
+     */
+    static boolean isDateOrder(String orderBy, String query) {
+        return "newest".equals(orderBy) || "oldest".equals(orderBy)
+                || ("relevance".equals(orderBy) && (query == null || query.isEmpty()));
+    }
+
+    /**
+     * Return the URL with the value of a query parameter replaced, or the URL as it is if it does not have it.
+     * The value is added as it is, so it must not need to be encoded.
+     */
+    static String replaceParameter(String url, String name, String value) {
+        int queryIndex = url.indexOf('?');
+        if (queryIndex < 0) {
+            return url;
+        }
+        StringBuilder replaced = new StringBuilder(url.substring(0, queryIndex + 1));
+        String[] parameters = url.substring(queryIndex + 1).split("&");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                replaced.append('&');
+            }
+            if (parameters[i].startsWith(name + "=")) {
+                replaced.append(name).append('=').append(value);
+            } else {
+                replaced.append(parameters[i]);
+            }
+        }
+        return replaced.toString();
+    }
+}
@@ -6,48 +6,119 @@ import android.content.Intent;
 import android.content.Loader;
 import android.content.SharedPreferences;
 import android.graphics.Typeface;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
-import android.preference.PreferenceManager;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.inputmethod.EditorInfo;
-import android.widget.AdapterView;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.os.Handler;
+import android.preference.PreferenceManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<NewsList>>, SwipeRefreshLayout.OnRefreshListener {
     /**
-     * URL for news list data from The Guardian OpenPlatform API using specific queries
+     * Time to wait before restarting the loader, so repeated searches and refreshes start only one load
+     */
+    private static final long RESTART_DELAY = 300; /* milliseconds */
+    /**
+     * Time to wait after the last char typed before searching on the server
      */
-    private static final String REQUEST_URL = "https://content.guardianapis.com/search?page-size=20&show-tags=contributor&show-fields=all&api-key=test";
+    private static final long TYPING_DELAY = 1000; /* milliseconds */
+    /**
+     * The server is asked only when the news found locally are less than these
+     */
+    private static final int MIN_LOCAL_RESULTS = 10;
+    //max number of news shown while typing
+    private static final int MAX_LOCAL_RESULTS = 100;
+    //argument of the loader with the name of the RateLimiter priority of its requests
+    private static final String ARG_PRIORITY = "priority";
+    //the setup that is not needed for the first frame runs on this thread
+    private static final ExecutorService sStartupExecutor = Executors.newSingleThreadExecutor();
+    //the font of the search icon, loaded once for the whole app
+    private static volatile Typeface sFontAwesome;
+    //true when the start of the app has been measured, only the first activity created is measured
+    private static boolean sStartupMeasured;
     private LoaderManager loaderManager;
-    private ListView listView;
+    private RecyclerView listView;
     private NewsListAdapter adapter;
+    private NewsPager pager;
     private TextView emptyStateTextView;
     private ProgressBar mLoader;
     private Button searchButton = null;
     private EditText searchField = null;
     private String query = null;
+    //true while the list shows the news found locally for the text typed
+    private boolean showingLocalResults = false;
     private SwipeRefreshLayout listRefresh;
+    //prepares the bodies of the news, they are opened in the reader
+    private ArticleReader articleReader;
+    //tells the kind of network, the requests are made for it
+    private ConnectivityMonitor connectivityMonitor;
+    //when the network comes back the news are loaded again, the ones shown were the saved ones
+    private ConnectivityMonitor.Listener linkListener = new ConnectivityMonitor.Listener() {
+        @Override
+        public void onLinkChanged(ConnectivityMonitor.LinkType previous, ConnectivityMonitor.LinkType current) {
+            if (previous == ConnectivityMonitor.LinkType.OFFLINE && !showingLocalResults) {
+                scheduleRestart();
+            }
+        }
+    };
+    private Handler handler = new Handler();
+    //this restarts the loader, it is posted with a delay to debounce repeated triggers
+    private Runnable restartLoader = new Runnable() {
+        @Override
+        public void run() {
+            Bundle args = new Bundle();
+            args.putString(ARG_PRIORITY, restartPriority.name());
+            restartPriority = RateLimiter.Priority.INTERACTIVE;
+            loaderManager.restartLoader(1, args, MainActivity.this);
+        }
+    };
+    //priority of the restart waiting, a refresh of the news shown does not use the budget of the user's requests
+    private RateLimiter.Priority restartPriority = RateLimiter.Priority.INTERACTIVE;
+    //applies the preferences as soon as they change, registered when the settings are opened
+    private SharedPreferences.OnSharedPreferenceChangeListener preferenceListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                    if (key.equals(getString(R.string.settings_order_by_key)) || key.equals(getString(R.string.settings_sections_key))) {
+                        applyPreferencesLocally();
+                    } else if (key.equals(getString(R.string.settings_max_results_key))) {
+                        scheduleRestart();
+                    }
+                }
+            };
+    private boolean preferenceListenerRegistered = false;
+    //this searches on the server the text typed, it is posted when the user stops typing
+    private Runnable typingSearch = new Runnable() {
+        @Override
+        public void run() {
+            search();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        final long createStart = System.nanoTime();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         // This add a logo in ActionBar
@@ -57,53 +128,100 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         //this allows to refresh the list of news by swiping
         listRefresh = (SwipeRefreshLayout) findViewById(R.id.swipe_refresh);
         listRefresh.setOnRefreshListener(this);
-        //Set the Awesome Font
-        Typeface fontAW = Typeface.createFromAsset(getAssets(), "fontawesome-webfont.ttf");
         searchButton = (Button) findViewById(R.id.search);
-        searchButton.setTypeface(fontAW);
+        //the setup not needed to show the news is done in background, the first frame does not wait for it
+        startBackgroundSetup();
         //this finds the id of search field
         searchField = (EditText) findViewById(R.id.et_search);
         //Find the id for the following views
-        listView = (ListView) findViewById(R.id.list);
+        listView = (RecyclerView) findViewById(R.id.list);
         emptyStateTextView = (TextView) findViewById(R.id.empty_view);
         //this loads a circle progress bar as loading bar
         mLoader = (ProgressBar) findViewById(R.id.loading_indicator);
-        // Get a reference to the LoaderManager, in order to interact with loaders.
-        loaderManager = getLoaderManager();
-        if (isConnected()) { //if there is internet connection
-            // Initialize the loader. Pass in the int an ID constant and pass in null for the bundle. Pass in this activity for the LoaderCallbacks parameter.
-            loaderManager.initLoader(1, null, this);
-        } else {
-            //hide the loading bar
+        articleReader = ArticleReader.getInstance(this);
+        connectivityMonitor = ConnectivityMonitor.getInstance(this);
+        connectivityMonitor.addListener(linkListener);
+        //Shows the items list using a RecyclerView with a custom adapter, a click on a row opens the news
+        listView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new NewsListAdapter(new ArrayList<NewsList>(), new NewsListAdapter.OnItemClickListener() {
+            @Override
+            public void onItemClick(NewsList news) {
+                openNews(news);
+            }
+        });
+        listView.setAdapter(adapter);
+        // show the empty view only when the list is empty, as ListView.setEmptyView did
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                updateEmptyView();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+        });
+        // The pager loads the next pages while the list is scrolled and keeps only some of them in memory
+        pager = new NewsPager(this, new NewsPager.Listener() {
+            @Override
+            public void onNewsChanged(List<NewsList> news) {
+                // only the rows added, removed or changed are updated, so the rows on screen keep their position
+                if (!showingLocalResults) {
+                    adapter.setNews(news);
+                }
+            }
+        });
+        listView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
+                int visibleItemCount = layoutManager.findLastVisibleItemPosition() - firstVisibleItem + 1;
+                // the news found locally are not pages of the request, so nothing more is loaded
+                if (!showingLocalResults) {
+                    pager.onScroll(firstVisibleItem, visibleItemCount, layoutManager.getItemCount());
+                }
+            }
+
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchVisibleBodies();
+                }
+            }
+        });
+        // Every article received is saved with its body, so it can be searched also without connection
+        QueryUtils.setArticleStore(ArticleStore.getInstance(this));
+        // The news shown the last time are in the first frame, the loader replaces them when it has newer ones
+        long snapshotStart = System.nanoTime();
+        List<NewsList> snapshot = FeedSnapshot.read(this);
+        if (snapshot != null) {
+            adapter.setNews(snapshot);
             mLoader.setVisibility(View.GONE);
-            //display that there is no internet connection
-            String message = getString(R.string.no_internet);
-            new AlertDialog.Builder(this).setMessage(message).show();
         }
-        // set the view to show when the list is empty
-        listView.setEmptyView(emptyStateTextView);
-        //Shows the items list using an ListView with a custom adapter
-        adapter = new NewsListAdapter(this, new ArrayList<NewsList>());
-        listView.setAdapter(adapter);
-        // Set a click listener to open an activity for the respective position
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                //load the buy link in the Browser
-                NewsList itemsList = (NewsList) adapterView.getAdapter().getItem(position);
-                Uri webpage;
-                String title = itemsList.getWebTitle();
-                if (itemsList.getWebUrl() != null) {
-                    webpage = Uri.parse(itemsList.getWebUrl());
-                    Intent intent = new Intent(Intent.ACTION_VIEW, webpage);
-                    if (intent.resolveActivity(getPackageManager()) != null) {
-                        startActivity(intent);
-                    }
-                } else { //if the items have no buy link, a toast message is displayed
-                    Toast.makeText(getApplicationContext(), "\"" + title + "\" " + getString(R.string.not_available), Toast.LENGTH_LONG).show();
+        // Get a reference to the LoaderManager, in order to interact with loaders.
+        loaderManager = getLoaderManager();
+        // The loader reads the preferences and the database, so it is started after the first frame.
+        // Without internet connection the loader shows the news saved in the cache, if any.
+        listView.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isFinishing()) {
+                    loaderManager.initLoader(1, null, MainActivity.this);
                 }
             }
         });
+        if (!sStartupMeasured) {
+            sStartupMeasured = true;
+            Metrics.recordSince(Metrics.STARTUP_SNAPSHOT, snapshotStart);
+            measureFirstFrames(createStart);
+        }
         // The code in this method will be executed when the button search on keyboard is clicked on.
         searchField.setOnEditorActionListener(new TextView.OnEditorActionListener() {
             @Override
@@ -115,6 +233,21 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
                 return false;
             }
         });
+        // While typing, the list shows at once the news already loaded that match the text.
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                filter(s.toString().trim());
+            }
+        });
         // The code in this method will be executed when the button search is clicked on.
         searchButton.setOnClickListener(new Button.OnClickListener() {
             @Override
@@ -122,77 +255,240 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
                 search();
             }
         });
+        Metrics.recordSince(Metrics.STARTUP_CREATE, createStart);
+    }
+
+    //load the font of the search icon and schedule the prefetch job, without blocking the main thread
+    private void startBackgroundSetup() {
+        if (sFontAwesome != null) {
+            searchButton.setTypeface(sFontAwesome);
+            return;
+        }
+        //the icon is shown when its font is ready, before it would be a wrong char
+        searchButton.setVisibility(View.INVISIBLE);
+        final Context appContext = getApplicationContext();
+        sStartupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                //Set the Awesome Font
+                sFontAwesome = Typeface.createFromAsset(appContext.getAssets(), "fontawesome-webfont.ttf");
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        searchButton.setTypeface(sFontAwesome);
+                        searchButton.setVisibility(View.VISIBLE);
+                    }
+                });
+                //the preferences are read from the disk here, so the loader finds them already in memory
+                PreferenceManager.getDefaultSharedPreferences(appContext);
+                //the sections are downloaded in background when the device is charging, idle and on wifi
+                PrefetchScheduler.schedule(appContext);
+            }
+        });
+    }
+
+    //record the time from the creation of the activity to its first frame, and to the first frame with news
+    private void measureFirstFrames(final long createStart) {
+        listView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            private boolean firstFrame = true;
+
+            @Override
+            public boolean onPreDraw() {
+                if (firstFrame) {
+                    firstFrame = false;
+                    Metrics.recordSince(Metrics.STARTUP_FIRST_FRAME, createStart);
+                }
+                if (adapter.getItemCount() > 0) {
+                    Metrics.recordSince(Metrics.STARTUP_FIRST_CONTENT, createStart);
+                    listView.getViewTreeObserver().removeOnPreDrawListener(this);
+                }
+                return true;
+            }
+        });
+    }
+
+    //open the news in the reader, or load its link in the Browser if it has no id to find its body
+    private void openNews(NewsList itemsList) {
+        Uri webpage;
+        String title = itemsList.getWebTitle();
+        if (itemsList.getId() != null && !itemsList.getId().isEmpty()) {
+            startActivity(ReaderActivity.newIntent(this, itemsList));
+        } else if (itemsList.getWebUrl() != null) {
+            webpage = Uri.parse(itemsList.getWebUrl());
+            Intent intent = new Intent(Intent.ACTION_VIEW, webpage);
+            if (intent.resolveActivity(getPackageManager()) != null) {
+                startActivity(intent);
+            }
+        } else { //if the items have no link, a toast message is displayed
+            Toast.makeText(getApplicationContext(), "\"" + title + "\" " + getString(R.string.not_available), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    //the bodies of the rows on screen are prepared while the user reads the list, so they open at once
+    private void prefetchVisibleBodies() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) listView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        List<NewsList> visible = new ArrayList<>();
+        for (int position = first; position <= last && position < adapter.getNewsCount(); position++) {
+            visible.add(adapter.getItem(position));
+        }
+        articleReader.prefetch(visible);
+    }
+
+    //the empty view is visible only when there are no news in the list
+    private void updateEmptyView() {
+        emptyStateTextView.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+    }
+
+    //show the news of the index matching the text, the server is asked later only if they are not enough
+    private void filter(String text) {
+        handler.removeCallbacks(typingSearch);
+        String current = query == null ? "" : query.trim();
+        if (text.equals(current)) {
+            // back to the text of the last request, its news are shown again
+            if (showingLocalResults) {
+                showingLocalResults = false;
+                adapter.setNews(pager.getNews());
+            }
+            return;
+        }
+        List<NewsList> found = text.isEmpty() ? pager.getNews() : SearchIndex.search(text, MAX_LOCAL_RESULTS);
+        showingLocalResults = true;
+        emptyStateTextView.setText(getString(R.string.no_found, text));
+        adapter.setNews(found);
+        if (text.isEmpty() || found.size() < MIN_LOCAL_RESULTS) {
+            handler.postDelayed(typingSearch, TYPING_DELAY);
+        }
     }
 
     private void search() {
-        //determine if connection is active after the search button is clicked
-        if (isConnected()) {
-            query = searchField.getText().toString();
-            mLoader.setVisibility(View.VISIBLE);
-            emptyStateTextView.setText("");
-            //restart the loader with the new data
-            loaderManager.restartLoader(1, null, this);
-        } else {
-            String message = getString(R.string.no_internet);
-            new AlertDialog.Builder(this).setMessage(message).show();
+        handler.removeCallbacks(typingSearch);
+        query = searchField.getText().toString();
+        mLoader.setVisibility(View.VISIBLE);
+        emptyStateTextView.setText("");
+        //restart the loader with the new data, without connection only the cached results can be found
+        scheduleRestart();
+    }
+
+    //restart the loader after a short delay, a newer search or refresh replaces the one waiting
+    private void scheduleRestart() {
+        scheduleRestart(RateLimiter.Priority.INTERACTIVE);
+    }
+
+    private void scheduleRestart(RateLimiter.Priority priority) {
+        restartPriority = priority;
+        handler.removeCallbacks(restartLoader);
+        handler.postDelayed(restartLoader, RESTART_DELAY);
+    }
+
+    //show the news already loaded sorted and filtered as the new preferences say, the server is asked
+    //only if they cannot answer, for example for the relevance of a search or a section not loaded
+    private void applyPreferencesLocally() {
+        List<NewsList> news = showingLocalResults ? null
+                : LocalQuery.answer(NewsCache.getInstance(this), buildRequestUrls(FetchProfile.forLink(connectivityMonitor.getLinkType())));
+        if (news == null) {
+            scheduleRestart();
+            return;
+        }
+        //the loader would load again the old requests when the list is shown again
+        handler.removeCallbacks(restartLoader);
+        loaderManager.destroyLoader(1);
+        mLoader.setVisibility(View.GONE);
+        emptyStateTextView.setText(getString(R.string.no_found, query));
+        //the list is made of the news loaded, so no other page is added to it; a refresh loads the new requests
+        pager.setFirstPage(null, news);
+        String current = query == null ? "" : query.trim();
+        if (current.isEmpty() && !news.isEmpty()) {
+            FeedSnapshot.write(this, news);
+        }
+    }
+
+    //the URLs of the first page of the current search, one for each section chosen, made for the network
+    private List<String> buildRequestUrls(FetchProfile profile) {
+        List<String> urls = new ArrayList<>();
+        for (String section : QueryUtils.getSections(this)) {
+            urls.add(QueryUtils.buildRequestUrl(this, query, section, profile));
         }
+        return urls;
     }
 
     @Override
     public Loader<List<NewsList>> onCreateLoader(int i, Bundle bundle) {
-        //this call the connection on server in base of preference
+        //this call the connection on server in base of preference, with a request for each section chosen
         SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-        //here get the preferences
-        String maxResults = sharedPrefs.getString(
-                getString(R.string.settings_max_results_key),
-                getString(R.string.settings_max_results_default));
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default)
-        );
-        String section = sharedPrefs.getString(
-                getString(R.string.settings_section_key),
-                getString(R.string.settings_section_default)
-        );
-        //get the URL of the Guardian server
-        Uri baseUri = Uri.parse(REQUEST_URL);
-        //this is used to build the URL with the query parameters
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-        if (query != null && !query.isEmpty()) {
-            uriBuilder.appendQueryParameter("q", query); //this adds the query in the search box
-        }
-        uriBuilder.appendQueryParameter("page-size", maxResults); //this adds the max news listed
-        uriBuilder.appendQueryParameter("order-by", orderBy.toLowerCase()); //here defines the order of the list
-        if (!section.equals("all")) {
-            uriBuilder.appendQueryParameter("section", section.toLowerCase()); //this filter the results for section
-        }
-        return new NewsLoader(this, uriBuilder.toString());
+        RequestPolicy.setHedgingEnabled(sharedPrefs.getBoolean(getString(R.string.settings_hedge_key), true));
+        //on a slow or metered network only the list is downloaded, without network nothing is requested
+        FetchProfile profile = FetchProfile.forLink(connectivityMonitor.getLinkType());
+        RateLimiter.Priority priority = RateLimiter.Priority.INTERACTIVE;
+        if (bundle != null && bundle.getString(ARG_PRIORITY) != null) {
+            priority = RateLimiter.Priority.valueOf(bundle.getString(ARG_PRIORITY));
+        }
+        return new NewsLoader(this, buildRequestUrls(profile), profile.isOffline(), priority);
     }
 
     @Override //when the loading is finished
     public void onLoadFinished(Loader<List<NewsList>> loader, List<NewsList> data) {
-        if (isConnected()) {
-            // Clear the adapter of previous data
-            adapter.clear();
-            //hide the loading bar
-            mLoader.setVisibility(View.GONE);
+        NewsLoader newsLoader = (NewsLoader) loader;
+        //the first news of a response still downloading are shown with a "loading more" row after them
+        boolean partial = newsLoader.isPartial() && data != null && !data.isEmpty();
+        //hide the loading bar
+        mLoader.setVisibility(View.GONE);
+        //a refresh that reloaded the whole list ends with the news of the network, not with the cached ones
+        if (newsLoader.isFinished()) {
+            listRefresh.setRefreshing(false);
+        }
+        //nothing changed, the pages already loaded are kept
+        if (newsLoader.isRepeated()) {
+            return;
+        }
+        if (connectivityMonitor.isConnected()) {
             // Set empty state text to display "No books found."
             String message = getString(R.string.no_found, query);
             emptyStateTextView.setText(message);
-            // If there is a valid list of news, it add them to the adapter's data set.
-            if (data != null && !data.isEmpty()) {
-                adapter.addAll(data);
-            }
         } else {
-            mLoader.setVisibility(View.GONE);
             emptyStateTextView.setText(R.string.no_internet);
         }
+        // The list of news (also the cached one when offline) is the first page, it replaces the adapter's data set.
+        // If the user is typing something else, the news found locally are still shown.
+        String current = query == null ? "" : query.trim();
+        showingLocalResults = showingLocalResults && !searchField.getText().toString().trim().equals(current);
+        adapter.setLoadingMore(partial && !showingLocalResults);
+        //the next pages are not loaded until the first one has been read to the end
+        pager.setFirstPage(partial ? null : newsLoader.getUrl(), data);
+        //the feed is saved for the next start, the results of a search are not
+        if (!partial && current.isEmpty() && data != null && !data.isEmpty()) {
+            FeedSnapshot.write(this, data);
+        }
+        //the rows are laid out in the next frame, then their bodies are prepared
+        listView.post(new Runnable() {
+            @Override
+            public void run() {
+                prefetchVisibleBodies();
+            }
+        });
     }
 
     @Override
     public void onLoaderReset(Loader<List<NewsList>> loader) {
         // Loader reset, clears out the existing data.
-        adapter.clear();
+        adapter.setLoadingMore(false);
+        pager.reset();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        //stop the page being loaded and the restart still waiting
+        pager.cancel();
+        handler.removeCallbacksAndMessages(null);
+        connectivityMonitor.removeListener(linkListener);
+        if (preferenceListenerRegistered) {
+            PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(preferenceListener);
+        }
     }
 
     //this allows to open menu of search preference
@@ -206,34 +502,56 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
         if (id == R.id.action_settings) {
+            //the preferences are already loaded now, so the listener does not wait for the disk
+            if (!preferenceListenerRegistered) {
+                PreferenceManager.getDefaultSharedPreferences(this).registerOnSharedPreferenceChangeListener(preferenceListener);
+                preferenceListenerRegistered = true;
+            }
             Intent settingsIntent = new Intent(this, SettingsActivity.class);
             startActivity(settingsIntent);
             return true;
+        } else if (id == R.id.action_diagnostics) {
+            startActivity(new Intent(this, DiagnosticsActivity.class));
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
     @Override
     public void onRefresh() {
-        if (isConnected()) {
-            loaderManager.restartLoader(1, null, this);
-        } else {
+        if (!connectivityMonitor.isConnected()) {
+            //the news shown are kept, they are the last ones saved
             String message = getString(R.string.no_internet);
             new AlertDialog.Builder(this).setMessage(message).show();
+            listRefresh.setRefreshing(false);
+            return;
         }
-        new Handler().postDelayed(new Runnable() {
+        //a list sorted from the most recent news only asks the news published after the first one
+        if (showingLocalResults || !pager.refreshNewest(buildRequestUrls(FetchProfile.forLink(connectivityMonitor.getLinkType())), new NewsPager.RefreshListener() {
             @Override
-            public void run() {
+            public void onRefreshFinished(FetchResult.Status status, int added) {
+                if (status == FetchResult.Status.THROTTLED) {
+                    //the budget is kept for the user's requests, the news shown stay until the next refresh
+                    listRefresh.setRefreshing(false);
+                    return;
+                }
+                if (added < 0) {
+                    //the refresh failed, the whole list is loaded again, still as a refresh
+                    scheduleRestart(RateLimiter.Priority.REFRESH);
+                    return;
+                }
                 listRefresh.setRefreshing(false);
+                if (added > 0) {
+                    listView.scrollToPosition(0);
+                    String current = query == null ? "" : query.trim();
+                    if (current.isEmpty()) {
+                        FeedSnapshot.write(MainActivity.this, pager.getNews());
+                    }
+                }
             }
-        }, 3000);
-    }
-
-    //determine if connection is active
-    private Boolean isConnected() {
-        ConnectivityManager cm = (ConnectivityManager) this.getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        Boolean isConnected = activeNetwork != null && activeNetwork.isConnectedOrConnecting();
-        return isConnected;
+        })) {
+            //otherwise the whole list is loaded again, the spinner stops in onLoadFinished
+            scheduleRestart(RateLimiter.Priority.REFRESH);
+        }
     }
 }
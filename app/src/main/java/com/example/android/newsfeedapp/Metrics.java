@@ -0,0 +1,199 @@
+package com.example.android.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-process metrics of the loading of the news: how long each stage takes, from the connection to
+ * the binding of the rows, how many bytes and news are received. Every metric keeps its last values
+ * in a histogram, so its percentiles can be shown in {@link DiagnosticsActivity}.
+ */
+public final class Metrics {
+    //durations, in microseconds
+    public static final String DNS = "dns";
+    public static final String CONNECT = "connect";
+    public static final String TIME_TO_FIRST_BYTE = "ttfb";
+    public static final String BODY = "body";
+    public static final String PARSE = "parse";
+    public static final String LOAD = "load";
+    //from the start of a load to its first news parsed, while the rest of the response is downloading
+    public static final String FIRST_BATCH = "first_batch";
+    public static final String BIND = "bind";
+    //from the click on a row to the body shown in the reader
+    public static final String READER = "reader";
+    //phases of the start of the app, from the creation of the main activity
+    public static final String STARTUP_CREATE = "create";
+    public static final String STARTUP_SNAPSHOT = "snapshot";
+    public static final String STARTUP_FIRST_FRAME = "first_frame";
+    public static final String STARTUP_FIRST_CONTENT = "first_news";
+    //sizes
+    public static final String BYTES = "bytes";
+    public static final String ITEMS = "items";
+    //number of times a request has been sent, retries included
+    public static final String ATTEMPTS = "attempts";
+
+    //number of values kept for each metric, the oldest are replaced
+    private static final int MAX_SAMPLES = 1024;
+
+    //the metrics in the order they are shown
+    private static final Map<String, Histogram> sHistograms = new LinkedHashMap<>();
+
+    static {
+        for (String name : new String[]{DNS, CONNECT, TIME_TO_FIRST_BYTE, BODY, PARSE, LOAD, FIRST_BATCH, BIND, READER,
+                STARTUP_CREATE, STARTUP_SNAPSHOT, STARTUP_FIRST_FRAME, STARTUP_FIRST_CONTENT, BYTES, ITEMS, ATTEMPTS}) {
+            sHistograms.put(name, new Histogram());
+        }
+    }
+
+    //this have a private constructor because no one should create an instance of this class.
+    private Metrics() {
+    }
+
+    /**
+     * Add a value to a metric.
+     */
+    public static synchronized void record(String name, long value) {
+        Histogram histogram = sHistograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram();
+            sHistograms.put(name, histogram);
+        }
+        histogram.add(value);
+    }
+
+    /**
+     * Add the time passed from start to a duration metric.
+     *
+     * @param startNanos value of System.nanoTime() at the start
+     */
+    public static void recordSince(String name, long startNanos) {
+        record(name, (System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Remove all the values.
+     */
+    public static synchronized void clear() {
+        for (Histogram histogram : sHistograms.values()) {
+            histogram.clear();
+        }
+    }
+
+    /**
+     * Return the summary of all the metrics with at least one value.
+     */
+    public static synchronized List<Summary> getSummaries() {
+        List<Summary> summaries = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : sHistograms.entrySet()) {
+            if (entry.getValue().mCount > 0) {
+                summaries.add(entry.getValue().summarize(entry.getKey()));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Return a text table of the metrics, shown on the diagnostics screen and exported to a file.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "%-11s %7s %10s %10s %10s %10s%n", "metric", "count", "p50", "p95", "p99", "max"));
+        for (Summary summary : getSummaries()) {
+            report.append(String.format(Locale.US, "%-11s %7d %10s %10s %10s %10s%n", summary.getName(), summary.getCount(),
+                    format(summary.getName(), summary.getP50()), format(summary.getName(), summary.getP95()),
+                    format(summary.getName(), summary.getP99()), format(summary.getName(), summary.getMax())));
+        }
+        report.append("durations in ms, sizes in KB or news, attempts per request\n");
+        return report.toString();
+    }
+
+    private static String format(String name, long value) {
+        if (name.equals(ITEMS) || name.equals(ATTEMPTS)) {
+            return String.valueOf(value);
+        } else if (name.equals(BYTES)) {
+            return String.format(Locale.US, "%.1f", value / 1024.0);
+        }
+        return String.format(Locale.US, "%.2f", value / 1000.0);
+    }
+
+    /**
+     * Percentiles of a metric.
+     */
+    public static class Summary {
+        private final String mName;
+        private final int mCount;
+        private final long mP50;
+        private final long mP95;
+        private final long mP99;
+        private final long mMax;
+
+        Summary(String name, int count, long p50, long p95, long p99, long max) {
+            mName = name;
+            mCount = count;
+            mP50 = p50;
+            mP95 = p95;
+            mP99 = p99;
+            mMax = max;
+        }
+
+        //getter
+        public String getName() {
+            return mName;
+        }
+
+        public int getCount() {
+            return mCount;
+        }
+
+        public long getP50() {
+            return mP50;
+        }
+
+        public long getP95() {
+            return mP95;
+        }
+
+        public long getP99() {
+            return mP99;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+    }
+
+    /**
+     * The last values of a metric, in a ring buffer.
+     */
+    private static class Histogram {
+        private final long[] mSamples = new long[MAX_SAMPLES];
+        //number of values added, also the ones replaced
+        private int mCount;
+
+        void add(long value) {
+            mSamples[mCount % MAX_SAMPLES] = value;
+            mCount++;
+        }
+
+        void clear() {
+            mCount = 0;
+        }
+
+        Summary summarize(String name) {
+            long[] sorted = Arrays.copyOf(mSamples, Math.min(mCount, MAX_SAMPLES));
+            Arrays.sort(sorted);
+            return new Summary(name, mCount, percentile(sorted, 50), percentile(sorted, 95),
+                    percentile(sorted, 99), sorted[sorted.length - 1]);
+        }
+
+        //nearest-rank percentile of sorted values
+        private static long percentile(long[] sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.android.newsfeedapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.android.newsfeedapp.NewsContract.ResultEntry;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cache of the lists of news loaded for each request URL, used by {@link NewsLoader}.
+ * It has two levels: a bounded in-memory LRU of the parsed lists and a SQLite store that keeps
+ * the results between launches, until they are too old or the store is too big.
+ */
+public final class NewsCache {
+    public static final String LOG_TAG = NewsCache.class.getName();
+    //max number of news kept in memory, counted across all the cached lists
+    private static final int MEMORY_MAX_NEWS = 400;
+    //results older than this are removed from the disk
+    private static final long DISK_MAX_AGE = 7L * 24 * 60 * 60 * 1000; /* milliseconds */
+    //max size of the data stored on disk
+    private static final long DISK_MAX_SIZE = 4L * 1024 * 1024; /* bytes */
+
+    private static NewsCache sInstance;
+
+    private final LruCache<String, List<NewsList>> mMemory;
+    private final NewsDbHelper mDbHelper;
+
+    private NewsCache(Context context) {
+        mDbHelper = NewsDbHelper.getInstance(context);
+        mMemory = new LruCache<String, List<NewsList>>(MEMORY_MAX_NEWS) {
+            @Override
+            protected int sizeOf(String key, List<NewsList> value) {
+                return Math.max(1, value.size());
+            }
+        };
+    }
+
+    /**
+     * Return the single instance of the cache, created with the application context.
+     */
+    public static synchronized NewsCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NewsCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the list cached in memory for the given URL, or null. It never touches the disk,
+     * so it can be called on the main thread.
+     */
+    public List<NewsList> getFromMemory(String url) {
+        List<NewsList> news = mMemory.get(cacheKey(url));
+        return news == null ? null : trim(news, url);
+    }
+
+    /**
+     * Return the list cached for the given URL, looking in memory and then on disk, or null.
+     * This reads the database, so it has to be called on a background thread.
+     */
+    public List<NewsList> get(String url) {
+        String key = cacheKey(url);
+        List<NewsList> news = mMemory.get(key);
+        if (news == null) {
+            news = readFromDisk(key);
+            if (news != null) {
+                mMemory.put(key, news);
+            }
+        }
+        return news == null ? null : trim(news, url);
+    }
+
+    /**
+     * Store the list of news for the given URL in memory and on disk.
+     * This writes the database, so it has to be called on a background thread.
+     */
+    public void put(String url, List<NewsList> news) {
+        String key = cacheKey(url);
+        List<NewsList> copy = new ArrayList<>(news);
+        mMemory.put(key, copy);
+        writeToDisk(key, copy);
+    }
+
+    /**
+     * Return the key of a request: its canonical URL without the fields asked, because the lists
+     * cached have the same values with or without the bodies, and without the page size of the first page,
+     * because each network asks a different one (see {@link FetchProfile}). A list longer than the page asked
+     * is cut by {@link #trim}. The next pages keep their page size, with another size they hold other news.
+     */
+    static String cacheKey(String url) {
+        String canonical = HttpCache.canonicalUrl(url);
+        int queryIndex = canonical.indexOf('?');
+        if (queryIndex < 0) {
+            return canonical;
+        }
+        String page = getParameter(canonical, "page");
+        boolean firstPage = page == null || page.equals("1");
+        StringBuilder key = new StringBuilder(canonical.substring(0, queryIndex));
+        char separator = '?';
+        for (String parameter : canonical.substring(queryIndex + 1).split("&")) {
+            //the first page is the same with or without page=1
+            if (parameter.startsWith("show-fields=")
+                    || (firstPage && (parameter.startsWith("page-size=") || parameter.startsWith("page=")))) {
+                continue;
+            }
+            key.append(separator).append(parameter);
+            separator = '&';
+        }
+        return key.toString();
+    }
+
+    /**
+     * Return a copy of the news cached, without the ones after the page size of the request.
+     */
+    static List<NewsList> trim(List<NewsList> news, String url) {
+        int pageSize = -1;
+        String value = getParameter(url, "page-size");
+        if (value != null) {
+            try {
+                pageSize = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                Log.e(LOG_TAG, "Invalid page size: " + value);
+            }
+        }
+        if (pageSize > 0 && news.size() > pageSize) {
+            return new ArrayList<>(news.subList(0, pageSize));
+        }
+        return new ArrayList<>(news);
+    }
+
+    //the value of a query parameter of the URL, null if it is missing
+    private static String getParameter(String url, String name) {
+        int queryIndex = url.indexOf('?');
+        if (queryIndex < 0) {
+            return null;
+        }
+        for (String parameter : url.substring(queryIndex + 1).split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private List<NewsList> readFromDisk(String key) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        String[] projection = {ResultEntry.COLUMN_DATA, ResultEntry.COLUMN_FETCHED_AT};
+        String selection = ResultEntry.COLUMN_URL + "=?";
+        Cursor cursor = db.query(ResultEntry.TABLE_NAME, projection, selection, new String[]{key}, null, null, null);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            long fetchedAt = cursor.getLong(cursor.getColumnIndex(ResultEntry.COLUMN_FETCHED_AT));
+            if (System.currentTimeMillis() - fetchedAt > DISK_MAX_AGE) {
+                return null;
+            }
+            return fromJson(cursor.getString(cursor.getColumnIndex(ResultEntry.COLUMN_DATA)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void writeToDisk(String key, List<NewsList> news) {
+        String data = toJson(news);
+        if (data == null) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(ResultEntry.COLUMN_URL, key);
+        values.put(ResultEntry.COLUMN_DATA, data);
+        values.put(ResultEntry.COLUMN_FETCHED_AT, System.currentTimeMillis());
+        values.put(ResultEntry.COLUMN_SIZE, data.length());
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(ResultEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            evict(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Remove the results older than the max age and then the oldest ones until the store fits its max size.
+     */
+    private static void evict(SQLiteDatabase db) {
+        long oldest = System.currentTimeMillis() - DISK_MAX_AGE;
+        db.delete(ResultEntry.TABLE_NAME, ResultEntry.COLUMN_FETCHED_AT + "<?", new String[]{String.valueOf(oldest)});
+        Cursor cursor = db.query(ResultEntry.TABLE_NAME, new String[]{ResultEntry._ID, ResultEntry.COLUMN_SIZE},
+                null, null, null, null, ResultEntry.COLUMN_FETCHED_AT + " DESC");
+        List<Long> removed = new ArrayList<>();
+        try {
+            long totalSize = 0;
+            while (cursor.moveToNext()) {
+                totalSize += cursor.getLong(1);
+                if (totalSize > DISK_MAX_SIZE) {
+                    removed.add(cursor.getLong(0));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        for (long id : removed) {
+            db.delete(ResultEntry.TABLE_NAME, ResultEntry._ID + "=?", new String[]{String.valueOf(id)});
+        }
+    }
+
+    /**
+     * Convert a list of news in a JSON array, or return null if it is not possible.
+     */
+    private static String toJson(List<NewsList> news) {
+        JSONArray array = new JSONArray();
+        try {
+            for (NewsList item : news) {
+                JSONObject object = new JSONObject();
+                object.put("id", item.getId());
+                object.put("webTitle", item.getWebTitle());
+                object.put("sectionName", item.getSectionName());
+                object.put("webPublicationDate", item.getWebPublicationDate());
+                object.put("webUrl", item.getWebUrl());
+                object.put("author", item.getAuthor());
+                object.put("trailText", item.getTrailText());
+                object.put("thumbnail", item.getThumbnail());
+                array.put(object);
+            }
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, e.getMessage());
+            return null;
+        }
+        return array.toString();
+    }
+
+    /**
+     * Convert a JSON array written by toJson in a list of news, or return null if it is not valid.
+     */
+    private static List<NewsList> fromJson(String data) {
+        List<NewsList> news = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(data);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject object = array.getJSONObject(i);
+                news.add(new NewsList(object.optString("id"), object.optString("webTitle"), object.optString("sectionName"),
+                        object.optString("webPublicationDate"), object.optString("webUrl"),
+                        object.optString("author"), object.optString("trailText"), object.optString("thumbnail")));
+            }
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, e.getMessage());
+            return null;
+        }
+        return news;
+    }
+}
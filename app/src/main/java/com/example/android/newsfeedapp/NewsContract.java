@@ -0,0 +1,155 @@
+package com.example.android.newsfeedapp;
+
+import android.provider.BaseColumns;
+
+/**
+ * API Contract for the local database of the News Feed app.
+ */
+public final class NewsContract {
+
+    //this have a private constructor because no one should create an instance of this class.
+    private NewsContract() {
+    }
+
+    /**
+     * Inner class that defines constant values for the table of the cached results.
+     * Each entry is the list of news received for a request URL.
+     */
+    public static final class ResultEntry implements BaseColumns {
+        /**
+         * Name of database table for results
+         */
+        public final static String TABLE_NAME = "results";
+        /**
+         * Unique ID number for the result (only for use in the database table).
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+        /**
+         * Request URL used as key of the result.
+         * Type: TEXT
+         */
+        public final static String COLUMN_URL = "url";
+        /**
+         * List of news of the result, stored as JSON array.
+         * Type: TEXT
+         */
+        public final static String COLUMN_DATA = "data";
+        /**
+         * Time in milliseconds when the result has been downloaded.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_FETCHED_AT = "fetched_at";
+        /**
+         * Size in bytes of the stored data, used to limit the disk used.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_SIZE = "size";
+    }
+
+    /**
+     * Inner class that defines constant values for the table of the articles seen, used to search offline.
+     * Each entry is a single news with its body, identified by the key of the news.
+     */
+    public static final class ArticleEntry implements BaseColumns {
+        /**
+         * Name of database table for articles
+         */
+        public final static String TABLE_NAME = "articles";
+        /**
+         * Unique ID number for the article, it is also the docid of its row in the full-text table.
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+        /**
+         * Key of the news (its id, or its URL if it has no id).
+         * Type: TEXT
+         */
+        public final static String COLUMN_NEWS_KEY = "news_key";
+        /**
+         * Id of the news on The Guardian API.
+         * Type: TEXT
+         */
+        public final static String COLUMN_NEWS_ID = "news_id";
+        /**
+         * Title of the news.
+         * Type: TEXT
+         */
+        public final static String COLUMN_TITLE = "title";
+        /**
+         * Id of the section, the same value used for the section parameter of the requests.
+         * Type: TEXT
+         */
+        public final static String COLUMN_SECTION_ID = "section_id";
+        /**
+         * Name of the section shown in the list.
+         * Type: TEXT
+         */
+        public final static String COLUMN_SECTION_NAME = "section_name";
+        /**
+         * Publication date in ISO format, so it can be sorted as text.
+         * Type: TEXT
+         */
+        public final static String COLUMN_DATE = "date";
+        /**
+         * Web page of the news.
+         * Type: TEXT
+         */
+        public final static String COLUMN_URL = "url";
+        /**
+         * Name of the author.
+         * Type: TEXT
+         */
+        public final static String COLUMN_AUTHOR = "author";
+        /**
+         * Short description in HTML.
+         * Type: TEXT
+         */
+        public final static String COLUMN_TRAIL_TEXT = "trail_text";
+        /**
+         * URL of the small picture shown in the list, added in version 3.
+         * Type: TEXT
+         */
+        public final static String COLUMN_THUMBNAIL = "thumbnail";
+        /**
+         * Body of the article in HTML.
+         * Type: TEXT
+         */
+        public final static String COLUMN_BODY = "body";
+        /**
+         * Time in milliseconds when the article has been downloaded.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_FETCHED_AT = "fetched_at";
+        /**
+         * Size in bytes of the stored texts, used to limit the disk used.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_SIZE = "size";
+    }
+
+    /**
+     * Inner class that defines constant values for the full-text table of the articles.
+     * The docid of each row is the _ID of the article in {@link ArticleEntry}, the texts are stored without HTML.
+     */
+    public static final class ArticleSearchEntry {
+        /**
+         * Name of the FTS4 virtual table
+         */
+        public final static String TABLE_NAME = "articles_fts";
+        /**
+         * Row id of the FTS table, the same of the article.
+         * Type: INTEGER
+         */
+        public final static String DOCID = "docid";
+        /**
+         * Columns indexed, in this order.
+         * Type: TEXT
+         */
+        public final static String COLUMN_TITLE = "title";
+        public final static String COLUMN_TRAIL_TEXT = "trail_text";
+        public final static String COLUMN_SECTION_NAME = "section_name";
+        public final static String COLUMN_AUTHOR = "author";
+        public final static String COLUMN_BODY = "body";
+    }
+}
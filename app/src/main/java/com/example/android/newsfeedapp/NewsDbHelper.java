@@ -0,0 +1,106 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.android.newsfeedapp.NewsContract.ArticleEntry;
+import com.example.android.newsfeedapp.NewsContract.ArticleSearchEntry;
+import com.example.android.newsfeedapp.NewsContract.ResultEntry;
+
+/**
+ * Database helper for the News Feed app. Manages database creation and version management.
+ */
+public class NewsDbHelper extends SQLiteOpenHelper {
+    /**
+     * Name of the database file
+     */
+    private static final String DATABASE_NAME = "news.db";
+    /**
+     * Database version. If you change the database schema, you must increment the database version.
+     */
+    private static final int DATABASE_VERSION = 3;
+
+    private static NewsDbHelper sInstance;
+
+    /**
+     * Constructs a new instance of {@link NewsDbHelper}.
+     *
+     * @param context of the app
+     */
+    public NewsDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Return the single helper of the app, so all the stores share the same connection to the database.
+     */
+    public static synchronized NewsDbHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NewsDbHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * This is called when the database is created for the first time.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // Create a String that contains the SQL statement to create the results table
+        String SQL_CREATE_RESULTS_TABLE = "CREATE TABLE " + ResultEntry.TABLE_NAME + " ("
+                + ResultEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + ResultEntry.COLUMN_URL + " TEXT NOT NULL UNIQUE, "
+                + ResultEntry.COLUMN_DATA + " TEXT NOT NULL, "
+                + ResultEntry.COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + ResultEntry.COLUMN_SIZE + " INTEGER NOT NULL DEFAULT 0);";
+        db.execSQL(SQL_CREATE_RESULTS_TABLE);
+        createArticleTables(db);
+    }
+
+    /**
+     * Create the table of the articles and its full-text table, added in version 2.
+     */
+    private static void createArticleTables(SQLiteDatabase db) {
+        String SQL_CREATE_ARTICLES_TABLE = "CREATE TABLE " + ArticleEntry.TABLE_NAME + " ("
+                + ArticleEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + ArticleEntry.COLUMN_NEWS_KEY + " TEXT NOT NULL UNIQUE, "
+                + ArticleEntry.COLUMN_NEWS_ID + " TEXT, "
+                + ArticleEntry.COLUMN_TITLE + " TEXT, "
+                + ArticleEntry.COLUMN_SECTION_ID + " TEXT, "
+                + ArticleEntry.COLUMN_SECTION_NAME + " TEXT, "
+                + ArticleEntry.COLUMN_DATE + " TEXT, "
+                + ArticleEntry.COLUMN_URL + " TEXT, "
+                + ArticleEntry.COLUMN_AUTHOR + " TEXT, "
+                + ArticleEntry.COLUMN_TRAIL_TEXT + " TEXT, "
+                + ArticleEntry.COLUMN_THUMBNAIL + " TEXT, "
+                + ArticleEntry.COLUMN_BODY + " TEXT, "
+                + ArticleEntry.COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + ArticleEntry.COLUMN_SIZE + " INTEGER NOT NULL DEFAULT 0);";
+        db.execSQL(SQL_CREATE_ARTICLES_TABLE);
+        db.execSQL("CREATE INDEX " + ArticleEntry.TABLE_NAME + "_date ON "
+                + ArticleEntry.TABLE_NAME + " (" + ArticleEntry.COLUMN_DATE + ");");
+        // FTS4 is available on all the supported versions, the texts are matched by the simple tokenizer
+        String SQL_CREATE_ARTICLES_SEARCH_TABLE = "CREATE VIRTUAL TABLE " + ArticleSearchEntry.TABLE_NAME + " USING fts4("
+                + ArticleSearchEntry.COLUMN_TITLE + ", "
+                + ArticleSearchEntry.COLUMN_TRAIL_TEXT + ", "
+                + ArticleSearchEntry.COLUMN_SECTION_NAME + ", "
+                + ArticleSearchEntry.COLUMN_AUTHOR + ", "
+                + ArticleSearchEntry.COLUMN_BODY + ");";
+        db.execSQL(SQL_CREATE_ARTICLES_SEARCH_TABLE);
+    }
+
+    /**
+     * This is called when the database needs to be upgraded.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Version 2 adds the articles used to search offline, the cached results are kept
+        if (oldVersion < 2) {
+            createArticleTables(db);
+        } else if (oldVersion < 3) {
+            // Version 3 adds the picture of the articles, the ones stored before have none
+            db.execSQL("ALTER TABLE " + ArticleEntry.TABLE_NAME + " ADD COLUMN " + ArticleEntry.COLUMN_THUMBNAIL + " TEXT;");
+        }
+    }
+}
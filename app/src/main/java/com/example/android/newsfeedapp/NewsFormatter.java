@@ -0,0 +1,225 @@
+package com.example.android.newsfeedapp;
+
+import android.text.Html;
+import android.util.Log;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Helper methods that prepare the values shown in the rows of the list, so they can be computed
+ * on a background thread before the news are given to {@link NewsListAdapter}.
+ */
+public final class NewsFormatter {
+    public static final String LOG_TAG = NewsFormatter.class.getName();
+    /**
+     * Value of a date that is not in the ISO format of the API
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+    //length of a date like "2017-07-15T21:30:35Z"
+    private static final int ISO_DATE_LENGTH = 20;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    //SimpleDateFormat is not thread safe, so every thread has its own instances, created only once
+    private static final ThreadLocal<SimpleDateFormat> sServerFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        }
+    };
+    private static final ThreadLocal<SimpleDateFormat> sDisplayFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        }
+    };
+    //the dates of the API are in UTC, so the day shown is the same of the ISO string
+    private static final ThreadLocal<SimpleDateFormat> sDisplayUtcFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format;
+        }
+    };
+
+    //this have a private constructor because no one should create an instance of this class.
+    private NewsFormatter() {
+    }
+
+    /**
+     * Prepare the rows of all the news of a list (see {@link NewsRow}), so binding them only sets their values.
+     * This is called on a background thread.
+     */
+    public static void prepare(List<NewsList> news) {
+        if (news == null) {
+            return;
+        }
+        for (NewsList item : news) {
+            NewsRow.get(item);
+        }
+    }
+
+    /**
+     * Return the publication date as shown in the list, like "Jul 15, 2017".
+     */
+    public static String formatDate(String date) {
+        String newFormatData = "";
+        if (date.length() >= 10) {
+            // Splits the string after 10 char, because the date obtained from server is like this "2017-07-15T21:30:35Z", so this method will give 2017-07-15
+            CharSequence splittedDate = date.subSequence(0, 10);
+            try {
+                Date formatDate = sServerFormat.get().parse(splittedDate.toString());
+                newFormatData = sDisplayFormat.get().format(formatDate);
+            } catch (ParseException e) {
+                Log.e(LOG_TAG, e.getMessage());
+            }
+        } else {
+            newFormatData = date;
+        }
+        return newFormatData;
+    }
+
+    /**
+     * Return the publication time, as shown in the list, of a date already parsed with {@link #parseIsoDate}.
+     */
+    public static String formatDate(long time) {
+        return sDisplayUtcFormat.get().format(new Date(time));
+    }
+
+    /**
+     * Return the milliseconds since 1970 of a date of the API like "2017-07-15T21:30:35Z", or {@link #NO_DATE}
+     * if the date is not exactly in this format. The date is read without creating any object, it is
+     * called for every news parsed.
+     */
+    public static long parseIsoDate(String date) {
+        if (date == null || date.length() != ISO_DATE_LENGTH || date.charAt(4) != '-' || date.charAt(7) != '-'
+                || date.charAt(10) != 'T' || date.charAt(13) != ':' || date.charAt(16) != ':' || date.charAt(19) != 'Z') {
+            return NO_DATE;
+        }
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 7);
+        int day = parseDigits(date, 8, 10);
+        int hour = parseDigits(date, 11, 13);
+        int minute = parseDigits(date, 14, 16);
+        int second = parseDigits(date, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > DAYS_IN_MONTH[month - 1]
+                || (month == 2 && day == 29 && !isLeapYear(year))
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NO_DATE;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY + ((hour * 60 + minute) * 60 + second) * 1000L;
+    }
+
+    /**
+     * Return the date in the ISO format of the API, the opposite of {@link #parseIsoDate}.
+     */
+    public static String formatIsoDate(long time) {
+        long days = floorDiv(time, MILLIS_PER_DAY);
+        int secondsOfDay = (int) ((time - days * MILLIS_PER_DAY) / 1000);
+        //the civil date of the day number, see daysFromCivil
+        long shifted = days + 719468;
+        long era = (shifted >= 0 ? shifted : shifted - 146096) / 146097;
+        long dayOfEra = shifted - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        char[] chars = new char[ISO_DATE_LENGTH];
+        putDigits(chars, 0, 4, year);
+        chars[4] = '-';
+        putDigits(chars, 5, 7, month);
+        chars[7] = '-';
+        putDigits(chars, 8, 10, day);
+        chars[10] = 'T';
+        putDigits(chars, 11, 13, secondsOfDay / 3600);
+        chars[13] = ':';
+        putDigits(chars, 14, 16, secondsOfDay / 60 % 60);
+        chars[16] = ':';
+        putDigits(chars, 17, 19, secondsOfDay % 60);
+        chars[19] = 'Z';
+        return new String(chars);
+    }
+
+    //the number written with the chars from start to end, -1 if one of them is not a digit
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void putDigits(char[] chars, int start, int end, int value) {
+        for (int i = end - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    private static long floorDiv(long value, long divisor) {
+        long quotient = value / divisor;
+        return (value % divisor != 0 && (value < 0) != (divisor < 0)) ? quotient - 1 : quotient;
+    }
+
+    /**
+     * Return the number of days from 1970-01-01 to the date of the proleptic Gregorian calendar
+     * (the algorithm of Howard Hinnant, "chrono-compatible low-level date algorithms").
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Return the short description, converted from HTML to styled text.
+     */
+    public static CharSequence formatTrailText(String trailText) {
+        return Html.fromHtml(trailText);
+    }
+
+    /**
+     * Return the body of an article, converted from HTML to styled text. The pictures and the embedded
+     * contents are removed, without an image getter they would be shown as empty boxes.
+     * This is slow for a long article, so it is called on a background thread.
+     */
+    public static CharSequence formatBody(String body) {
+        String html = body.replaceAll("(?s)<figure.*?</figure>", "")
+                .replaceAll("(?s)<(script|iframe|style).*?</\\1>", "")
+                .replaceAll("<img[^>]*>", "");
+        CharSequence text = Html.fromHtml(html);
+        //the last paragraph ends with empty lines
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.subSequence(0, end);
+    }
+
+    /**
+     * Return the words of some HTML, without the tags and the entities, like the text that is indexed
+     * for the search. It is faster than {@link #formatBody} because no styled text is made.
+     */
+    public static String stripHtml(String html) {
+        return html == null ? "" : html.replaceAll("<[^>]*>", " ").replaceAll("&[^;\\s]+;", " ");
+    }
+}
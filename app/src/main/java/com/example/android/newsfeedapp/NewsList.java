@@ -1,17 +1,36 @@
 package com.example.android.newsfeedapp;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
+/**
+ * A news of the list. The values repeated in many news (section and author) are shared through the
+ * {@link StringPool}, the date is kept as a number and the values read only to open or save the news
+ * (links and short description) as UTF-8 bytes, so the thousands of news kept in the pages, in the caches
+ * and in the index take less memory.
+ */
 public class NewsList {
-    private String mWebTitle;
-    private String mSectionName;
-    private String mWebPublicationDate;
-    private String mWebUrl;
-    private String mAuthor;
-    private String mTrailText;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String mId;
+    private final String mWebTitle;
+    //shared with the other news of the same section and author
+    private final String mSectionName;
+    private final String mAuthor;
+    //publication time in milliseconds since 1970, NewsFormatter.NO_DATE if it is not in the ISO format
+    private final long mPublishedAt;
+    //the date as received, kept only when it cannot be written again from mPublishedAt
+    private final String mRawDate;
+    //UTF-8 bytes, about half of the memory of a String for these texts
+    private final byte[] mWebUrl;
+    private final byte[] mTrailText;
+    private final byte[] mThumbnail;
 
     /**
      * Constructor
      *
+     * @param id                 Guardian id of news, unique across all the results
      * @param webtitle           title of news
      * @param sectionName        name of section
      * @param webPublicationDate publication date
@@ -19,16 +38,33 @@ public class NewsList {
      * @param author             name of author
      * @param trailText          short description
      */
-    public NewsList(String webtitle, String sectionName, String webPublicationDate, String weburl, String author, String trailText) {
+    public NewsList(String id, String webtitle, String sectionName, String webPublicationDate, String weburl, String author, String trailText) {
+        this(id, webtitle, sectionName, webPublicationDate, weburl, author, trailText, "");
+    }
+
+    /**
+     * Constructor of a news with its picture
+     *
+     * @param thumbnail URL of the small picture shown in the list, empty if there is none
+     */
+    public NewsList(String id, String webtitle, String sectionName, String webPublicationDate, String weburl, String author,
+                    String trailText, String thumbnail) {
+        mId = id;
         mWebTitle = webtitle;
-        mSectionName = sectionName;
-        mWebPublicationDate = webPublicationDate;
-        mWebUrl = weburl;
-        mAuthor = author;
-        mTrailText = trailText;
+        mSectionName = StringPool.intern(sectionName);
+        mAuthor = StringPool.intern(author);
+        mPublishedAt = NewsFormatter.parseIsoDate(webPublicationDate);
+        mRawDate = mPublishedAt == NewsFormatter.NO_DATE ? webPublicationDate : null;
+        mWebUrl = toBytes(weburl);
+        mTrailText = toBytes(trailText);
+        mThumbnail = toBytes(thumbnail);
     }
 
     //getter
+    public String getId() {
+        return mId;
+    }
+
     public String getWebTitle() {
         return mWebTitle;
     }
@@ -37,12 +73,22 @@ public class NewsList {
         return mSectionName;
     }
 
+    /**
+     * Return the publication date in the ISO format of the API, like "2017-07-15T21:30:35Z".
+     */
     public String getWebPublicationDate() {
-        return mWebPublicationDate;
+        return mPublishedAt == NewsFormatter.NO_DATE ? mRawDate : NewsFormatter.formatIsoDate(mPublishedAt);
+    }
+
+    /**
+     * Return the publication time in milliseconds since 1970, or NewsFormatter.NO_DATE if it is unknown.
+     */
+    public long getPublishedAt() {
+        return mPublishedAt;
     }
 
     public String getWebUrl() {
-        return mWebUrl;
+        return fromBytes(mWebUrl);
     }
 
     public String getAuthor() {
@@ -50,20 +96,97 @@ public class NewsList {
     }
 
     public String getTrailText() {
-        return mTrailText;
+        return fromBytes(mTrailText);
+    }
+
+    public String getThumbnail() {
+        return fromBytes(mThumbnail);
+    }
+
+    /**
+     * Return the key that identifies the news across different lists and pages.
+     */
+    public String getKey() {
+        // the news saved before the id was stored are identified by their url
+        return mId != null && !mId.isEmpty() ? mId : getWebUrl();
+    }
+
+    /**
+     * Compare the publication dates of two news, the oldest first.
+     */
+    public static int compareByDate(NewsList first, NewsList second) {
+        if (first.mPublishedAt != NewsFormatter.NO_DATE && second.mPublishedAt != NewsFormatter.NO_DATE) {
+            return first.mPublishedAt < second.mPublishedAt ? -1 : (first.mPublishedAt == second.mPublishedAt ? 0 : 1);
+        }
+        // a date in another format is compared as a string, like the ISO dates
+        String firstDate = first.getWebPublicationDate() == null ? "" : first.getWebPublicationDate();
+        String secondDate = second.getWebPublicationDate() == null ? "" : second.getWebPublicationDate();
+        return firstDate.compareTo(secondDate);
+    }
+
+    private static byte[] toBytes(String text) {
+        if (text == null) {
+            return null;
+        }
+        return text.isEmpty() ? EMPTY : text.getBytes(UTF_8);
+    }
+
+    private static String fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return bytes.length == 0 ? "" : new String(bytes, UTF_8);
     }
 
     //auto-generated
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        NewsList newsList = (NewsList) o;
+
+        if (mPublishedAt != newsList.mPublishedAt) return false;
+        if (mId != null ? !mId.equals(newsList.mId) : newsList.mId != null) return false;
+        if (mWebTitle != null ? !mWebTitle.equals(newsList.mWebTitle) : newsList.mWebTitle != null)
+            return false;
+        if (mSectionName != null ? !mSectionName.equals(newsList.mSectionName) : newsList.mSectionName != null)
+            return false;
+        if (mRawDate != null ? !mRawDate.equals(newsList.mRawDate) : newsList.mRawDate != null)
+            return false;
+        if (!Arrays.equals(mWebUrl, newsList.mWebUrl)) return false;
+        if (mAuthor != null ? !mAuthor.equals(newsList.mAuthor) : newsList.mAuthor != null)
+            return false;
+        if (!Arrays.equals(mTrailText, newsList.mTrailText)) return false;
+        return Arrays.equals(mThumbnail, newsList.mThumbnail);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mId != null ? mId.hashCode() : 0;
+        result = 31 * result + (mWebTitle != null ? mWebTitle.hashCode() : 0);
+        result = 31 * result + (mSectionName != null ? mSectionName.hashCode() : 0);
+        result = 31 * result + (int) (mPublishedAt ^ (mPublishedAt >>> 32));
+        result = 31 * result + (mRawDate != null ? mRawDate.hashCode() : 0);
+        result = 31 * result + Arrays.hashCode(mWebUrl);
+        result = 31 * result + (mAuthor != null ? mAuthor.hashCode() : 0);
+        result = 31 * result + Arrays.hashCode(mTrailText);
+        result = 31 * result + Arrays.hashCode(mThumbnail);
+        return result;
+    }
+
     @Override
     public String toString() {
         return "NewsList{" +
-                "mWebTitle='" + mWebTitle + '\'' +
+                "mId='" + mId + '\'' +
+                ", mWebTitle='" + mWebTitle + '\'' +
                 ", mSectionName='" + mSectionName + '\'' +
-                ", mWebPublicationDate='" + mWebPublicationDate + '\'' +
-                ", mWebUrl='" + mWebUrl + '\'' +
+                ", mWebPublicationDate='" + getWebPublicationDate() + '\'' +
+                ", mWebUrl='" + getWebUrl() + '\'' +
                 ", mAuthor='" + mAuthor + '\'' +
-                ", mTrailText='" + mTrailText + '\'' +
+                ", mTrailText='" + getTrailText() + '\'' +
+                ", mThumbnail='" + getThumbnail() + '\'' +
                 '}';
     }
 }
@@ -1,72 +1,254 @@
 package com.example.android.newsfeedapp;
 
-import android.app.Activity;
-import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
-import android.text.Html;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import java.util.ArrayList;
-import java.util.Locale;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class NewsListAdapter extends ArrayAdapter<NewsList> {
+public class NewsListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     public static final String LOG_TAG = NewsListAdapter.class.getName();
+    //the rows of the news and the last row, shown while more news are downloading
+    private static final int TYPE_NEWS = 0;
+    private static final int TYPE_FOOTER = 1;
+    //the differences between the old and the new list are computed on this thread
+    private static final ExecutorService sDiffExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Receives the clicks on the rows of the list.
+     */
+    public interface OnItemClickListener {
+        void onItemClick(NewsList news);
+    }
+
+    private List<NewsList> mNews;
+    private final OnItemClickListener mListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    //incremented at each new list, so a diff computed for an older list is not applied
+    private int mGeneration;
+    //loads the pictures of the rows, created with the first row
+    private ImageLoader mImageLoader;
+    //size of the pictures in pixels, they are decoded at this size
+    private int mThumbnailWidth;
+    private int mThumbnailHeight;
+    //true when the footer is shown after the news
+    private boolean mLoadingMore;
+
     //Constructor of ListAdapter
-    public NewsListAdapter(Activity context, ArrayList<NewsList> items) {
-        // The second argument is used when the ArrayAdapter is populating and it can be any value. So it is used 0.
-        super(context, 0, items);
+    public NewsListAdapter(List<NewsList> items, OnItemClickListener listener) {
+        mNews = items;
+        mListener = listener;
+    }
+
+    /**
+     * Replace the news of the list. The changes are computed on a background thread, then only the
+     * rows inserted, removed, moved or changed are updated.
+     */
+    public void setNews(final List<NewsList> news) {
+        final int generation = ++mGeneration;
+        final List<NewsList> oldNews = mNews;
+        final List<NewsList> newNews = new ArrayList<>(news);
+        if (oldNews.isEmpty() || newNews.isEmpty()) {
+            // nothing to compare, so the list is simply replaced
+            mNews = newNews;
+            notifyDataSetChanged();
+            return;
+        }
+        sDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new NewsDiffCallback(oldNews, newNews), true);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            mNews = newNews;
+                            result.dispatchUpdatesTo(NewsListAdapter.this);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Show or hide the "loading more" row after the news, used while the rest of the list is downloading.
+     */
+    public void setLoadingMore(boolean loadingMore) {
+        if (mLoadingMore == loadingMore) {
+            return;
+        }
+        mLoadingMore = loadingMore;
+        if (loadingMore) {
+            notifyItemInserted(mNews.size());
+        } else {
+            notifyItemRemoved(mNews.size());
+        }
+    }
+
+    /**
+     * Return the news at the given position.
+     */
+    public NewsList getItem(int position) {
+        return mNews.get(position);
     }
-    @NonNull
+
+    /**
+     * Return the number of news, without the footer.
+     */
+    public int getNewsCount() {
+        return mNews.size();
+    }
+
     @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-        View listView = convertView;
-        if (listView == null) {
-            listView = LayoutInflater.from(getContext()).inflate(R.layout.list, parent, false);
-        }
-        //this gets the item position
-        if (position < getCount()) {
-            NewsList currentItem = getItem(position);
+    public int getItemCount() {
+        return mNews.size() + (mLoadingMore ? 1 : 0);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return position < mNews.size() ? TYPE_NEWS : TYPE_FOOTER;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == TYPE_FOOTER) {
+            View footerView = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_footer, parent, false);
+            return new FooterViewHolder(footerView);
+        }
+        if (mImageLoader == null) {
+            mImageLoader = ImageLoader.getInstance(parent.getContext());
+            mThumbnailWidth = parent.getResources().getDimensionPixelSize(R.dimen.thumbnail_width);
+            mThumbnailHeight = parent.getResources().getDimensionPixelSize(R.dimen.thumbnail_height);
+        }
+        View listView = LayoutInflater.from(parent.getContext()).inflate(R.layout.list, parent, false);
+        return new ViewHolder(listView);
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder viewHolder, int position) {
+        if (!(viewHolder instanceof ViewHolder)) {
+            //the footer has nothing to bind
+            return;
+        }
+        ViewHolder holder = (ViewHolder) viewHolder;
+        long bindStart = System.nanoTime();
+        NewsList currentItem = mNews.get(position);
+        //here the prepared values are just set, the date and the description are formatted in background
+        NewsRow row = NewsRow.get(currentItem);
+        holder.title.setText(currentItem.getWebTitle());
+        holder.authors.setText(currentItem.getAuthor());
+        holder.date.setText(row.getDate());
+        holder.section.setText(currentItem.getSectionName());
+        holder.desc.setText(row.getTrailText());
+        //the picture is loaded in background, the news without a picture use all the width for the texts
+        String thumbnail = currentItem.getThumbnail();
+        if (thumbnail == null || thumbnail.isEmpty()) {
+            mImageLoader.clear(holder.thumbnail);
+            holder.thumbnail.setVisibility(View.GONE);
+        } else {
+            holder.thumbnail.setVisibility(View.VISIBLE);
+            mImageLoader.load(thumbnail, holder.thumbnail, mThumbnailWidth, mThumbnailHeight);
+        }
+        Metrics.recordSince(Metrics.BIND, bindStart);
+    }
+
+    /**
+     * The row is not shown anymore, so the load of its picture is canceled.
+     */
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (mImageLoader != null && holder instanceof ViewHolder) {
+            mImageLoader.clear(((ViewHolder) holder).thumbnail);
+        }
+    }
+
+    /**
+     * The "loading more" row.
+     */
+    static class FooterViewHolder extends RecyclerView.ViewHolder {
+        FooterViewHolder(View footerView) {
+            super(footerView);
+        }
+    }
+
+    /**
+     * Views of a row of the list.
+     */
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        final TextView title;
+        final TextView authors;
+        final TextView date;
+        final TextView section;
+        final TextView desc;
+        final ImageView thumbnail;
+
+        ViewHolder(View listView) {
+            super(listView);
             //this displays the title of news in the list
-            TextView tw_title = (TextView) listView.findViewById(R.id.title_text_view);
-            tw_title.setText(currentItem.getWebTitle());
+            title = (TextView) listView.findViewById(R.id.title_text_view);
             //this displays the authors name
-            TextView tw_authors = (TextView) listView.findViewById(R.id.author_text_view);
-            tw_authors.setText(currentItem.getAuthor());
+            authors = (TextView) listView.findViewById(R.id.author_text_view);
             //this displays the date of publication
-            TextView tw_date = (TextView) listView.findViewById(R.id.publishedDate);
-            tw_date.setText(formatDate(currentItem.getWebPublicationDate()));
+            date = (TextView) listView.findViewById(R.id.publishedDate);
             //this displays the section
-            TextView tw_section = (TextView) listView.findViewById((R.id.section_text_view));
-            tw_section.setText(currentItem.getSectionName());
+            section = (TextView) listView.findViewById(R.id.section_text_view);
             //this display the description
-            TextView tw_desc = (TextView) listView.findViewById(R.id.desc_text_view);
-            tw_desc.setText(Html.fromHtml(currentItem.getTrailText()));
+            desc = (TextView) listView.findViewById(R.id.desc_text_view);
+            //this displays the picture of the news
+            thumbnail = (ImageView) listView.findViewById(R.id.thumbnail_image_view);
+            listView.setOnClickListener(this);
         }
-        return listView;
-    }
-    public String formatDate(String date){
-        String newFormatData = "";
-        if (date.length() >= 10) {
-            // Splits the string after 10 char, because the date obtained from server is like this "2017-07-15T21:30:35Z", so this method will give 2017-07-15
-            CharSequence splittedDate = date.subSequence(0, 10);
-            try{
-                Date formatDate = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).parse(splittedDate.toString());
-                newFormatData = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault()).format(formatDate);
-            }catch (ParseException e){
-                Log.e(LOG_TAG, e.getMessage());
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && position < mNews.size() && mListener != null) {
+                mListener.onItemClick(mNews.get(position));
             }
-        }else{
-            newFormatData = date;
         }
+    }
+
+    /**
+     * Compares two lists of news: the same news is found by its key, and it is changed if any value is different.
+     */
+    private static class NewsDiffCallback extends DiffUtil.Callback {
+        private final List<NewsList> mOldNews;
+        private final List<NewsList> mNewNews;
 
-        return newFormatData;
+        NewsDiffCallback(List<NewsList> oldNews, List<NewsList> newNews) {
+            mOldNews = oldNews;
+            mNewNews = newNews;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldNews.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewNews.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldNews.get(oldItemPosition).getKey().equals(mNewNews.get(newItemPosition).getKey());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldNews.get(oldItemPosition).equals(mNewNews.get(newItemPosition));
+        }
     }
 }
@@ -2,28 +2,161 @@ package com.example.android.newsfeedapp;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.os.CancellationSignal;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class NewsLoader extends AsyncTaskLoader<List<NewsList>> {
     /**
-     * Query URL
+     * Query URLs, one for each section of the feed
      */
-    private String mUrl;
+    private List<String> mUrls;
+    /**
+     * Cache of the results, used to show the news before the network answers
+     */
+    private NewsCache mCache;
+    /**
+     * Articles seen before, searched when there is no connection and the request is not in the cache
+     */
+    private ArticleStore mArticles;
+    /**
+     * Last list of news delivered
+     */
+    private List<NewsList> mNews;
+    /**
+     * Used to deliver the news found on disk while the network request is running
+     */
+    private Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Signal of the load running, canceled when a newer load replaces it
+     */
+    private CancellationSignal mCancellationSignal;
+    /**
+     * True when the load has ended, so the news delivered are the final ones and not the cached ones
+     */
+    private volatile boolean mFinished;
+    /**
+     * True when there is no network, so the news are read only from the cache and the stored articles
+     */
+    private boolean mOffline;
+    /**
+     * True only while the news delivered are the first ones parsed of a response still downloading
+     */
+    private boolean mPartial;
+    /**
+     * True when the last news delivered were partial, so the final ones are delivered also if they are the same
+     */
+    private boolean mDeliveredPartial;
+    /**
+     * True when the final news of the load have been delivered. Until then the final news are delivered also
+     * if they are the same already shown, so the list knows that the load has ended
+     */
+    private boolean mDeliveredFinished;
+    /**
+     * True only while the news delivered are the same already shown, delivered again only because the load has ended
+     */
+    private boolean mRepeated;
+    /**
+     * Priority of the requests of the load: a load that only revalidates the news shown is a refresh
+     */
+    private volatile RateLimiter.Priority mPriority = RateLimiter.Priority.INTERACTIVE;
+    /**
+     * Priority of the first load, REFRESH when the loader replaces one whose news are still shown
+     */
+    private final RateLimiter.Priority mStartPriority;
 
     /**
      * Constructs a new {@link NewsLoader}.
      *
      * @param context of the activity
-     * @param url     to load data from url
+     * @param urls    to load data from, when there are more URLs their news are merged by date
      */
-    public NewsLoader(Context context, String url) {
+    public NewsLoader(Context context, List<String> urls) {
+        this(context, urls, false);
+    }
+
+    /**
+     * Constructs a new {@link NewsLoader}.
+     *
+     * @param context of the activity
+     * @param urls    to load data from, when there are more URLs their news are merged by date
+     * @param offline true to not make any request, without network they would only wait and fail
+     */
+    public NewsLoader(Context context, List<String> urls, boolean offline) {
+        this(context, urls, offline, RateLimiter.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Constructs a new {@link NewsLoader}.
+     *
+     * @param context  of the activity
+     * @param urls     to load data from, when there are more URLs their news are merged by date
+     * @param offline  true to not make any request, without network they would only wait and fail
+     * @param priority of the requests of the first load, the next ones only revalidate the news and are refreshes
+     */
+    public NewsLoader(Context context, List<String> urls, boolean offline, RateLimiter.Priority priority) {
         super(context);
-        mUrl = url;
+        mStartPriority = priority;
+        mUrls = new ArrayList<>(urls);
+        mOffline = offline;
+        mCache = NewsCache.getInstance(context);
+        mArticles = ArticleStore.getInstance(context);
+    }
+
+    /**
+     * Return the URL of the request, used to load the next pages.
+     * A feed merged from more sections has no next pages, so it returns null.
+     */
+    public String getUrl() {
+        return mUrls.size() == 1 ? mUrls.get(0) : null;
+    }
+
+    /**
+     * Return true if the load has ended, false while the news delivered are the ones found in the cache.
+     */
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    /**
+     * Return true if the news delivered are only the first ones of the response, while the others are
+     * still downloading. It is meant to be called while the news are delivered, in onLoadFinished.
+     */
+    public boolean isPartial() {
+        return mPartial;
+    }
+
+    /**
+     * Return true if the news delivered are the same of the last ones, like after a refresh that found
+     * nothing new: only the end of the load is told. It is meant to be called in onLoadFinished.
+     */
+    public boolean isRepeated() {
+        return mRepeated;
+    }
+
+    @Override
+    protected void onForceLoad() {
+        mFinished = false;
+        mDeliveredFinished = false;
+        super.onForceLoad();
     }
 
     @Override
     protected void onStartLoading() {
+        // Show the news already available, then revalidate them in background
+        mPriority = mNews != null ? RateLimiter.Priority.REFRESH : mStartPriority;
+        if (mNews != null) {
+            deliverResult(mNews);
+        } else if (!mUrls.isEmpty()) {
+            List<NewsList> cached = readCache(true);
+            if (cached != null) {
+                deliverResult(cached);
+            }
+        }
         forceLoad();
     }
 
@@ -32,11 +165,238 @@ public class NewsLoader extends AsyncTaskLoader<List<NewsList>> {
      */
     @Override
     public List<NewsList> loadInBackground() {
-        if (mUrl == null) {
+        if (mUrls.isEmpty()) {
+            mFinished = true;
+            return null;
+        }
+        long loadStart = System.nanoTime();
+        if (mOffline) {
+            return loadOffline(loadStart);
+        }
+        // If nothing has been shown yet, the news stored on disk are delivered while waiting for the network.
+        final List<NewsList> cached = readCache(false);
+        if (cached != null) {
+            NewsFormatter.prepare(cached);
+            // also the saved news can be found while typing, even without connection
+            SearchIndex.addAll(cached);
+            post(cached, true);
+        }
+        CancellationSignal signal = new CancellationSignal();
+        synchronized (this) {
+            mCancellationSignal = signal;
+        }
+        // Perform the network requests, parse the responses, and extract a list of news.
+        // The same request already running (for example from a quick second search) is shared.
+        FetchResult result;
+        try {
+            // Without news to show, the news are shown in batches while the response is read
+            result = mUrls.size() == 1 ? fetch(mUrls.get(0), signal, cached == null, loadStart) : fetchFeed(signal);
+        } finally {
+            synchronized (this) {
+                mCancellationSignal = null;
+            }
+        }
+        if (result.isCanceled()) {
+            // The load has been canceled, the result is not used
             return null;
         }
-        // Perform the network request, parse the response, and extract a list of news.
-        List<NewsList> news = QueryUtils.fetchData(mUrl);
+        Metrics.recordSince(Metrics.LOAD, loadStart);
+        mFinished = true;
+        List<NewsList> news = result.getPage().getNews();
+        // The values shown in the list are prepared here, so the adapter only sets them
+        NewsFormatter.prepare(news);
+        if (!result.isSuccess() && news.isEmpty()) {
+            if (cached != null) {
+                // The network is not available (or failed), so the cached news are kept
+                return cached;
+            }
+            // A request never made before is answered by the articles stored, they are not cached as its result
+            for (String url : mUrls) {
+                news = FeedFetcher.merge(news, mArticles.search(url), isOldestFirst());
+            }
+            NewsFormatter.prepare(news);
+        }
+        return news;
+    }
+
+    /**
+     * Return the news cached for the request, or the stored articles that match it, without using the network.
+     */
+    private List<NewsList> loadOffline(long loadStart) {
+        List<NewsList> news = readCache(false);
+        if (news == null) {
+            news = new ArrayList<>();
+            for (String url : mUrls) {
+                news = FeedFetcher.merge(news, mArticles.search(url), isOldestFirst());
+            }
+        } else {
+            SearchIndex.addAll(news);
+        }
+        NewsFormatter.prepare(news);
+        Metrics.recordSince(Metrics.LOAD, loadStart);
+        mFinished = true;
         return news;
     }
+
+    /**
+     * Load a single request and cache its news.
+     *
+     * @param progressive true to deliver the news while they are parsed
+     * @param loadStart   start of the load, to measure when the first news arrive
+     */
+    private FetchResult fetch(String url, final CancellationSignal signal, boolean progressive, final long loadStart) {
+        QueryUtils.ProgressListener listener = null;
+        if (progressive) {
+            listener = new QueryUtils.ProgressListener() {
+                private boolean mFirst = true;
+
+                @Override
+                public void onNewsParsed(List<NewsList> news) {
+                    if (mFirst) {
+                        Metrics.recordSince(Metrics.FIRST_BATCH, loadStart);
+                        mFirst = false;
+                    }
+                    NewsFormatter.prepare(news);
+                    postPartial(news, signal);
+                }
+            };
+        }
+        FetchResult result = RequestPipeline.fetch(url, signal, mPriority, listener);
+        if (result.isSuccess() && !result.getPage().getNews().isEmpty()) {
+            mCache.put(url, result.getPage().getNews());
+        }
+        return result;
+    }
+
+    /**
+     * Load the requests of all the sections at the same time, the feed is shown while it is merged.
+     */
+    private FetchResult fetchFeed(CancellationSignal signal) {
+        return FeedFetcher.fetchAll(mUrls, isOldestFirst(), mPriority, signal, new FeedFetcher.Listener() {
+            @Override
+            public void onFeedUpdated(String url, List<NewsList> news, List<NewsList> merged) {
+                // every section is cached by itself, so it is found also when it is the only one selected
+                mCache.put(url, news);
+                NewsFormatter.prepare(merged);
+                post(merged, false);
+            }
+        });
+    }
+
+    /**
+     * Return the news cached for all the URLs merged, or null if none of them is cached.
+     *
+     * @param memoryOnly true to look only in memory, so it can be called on the main thread
+     */
+    private List<NewsList> readCache(boolean memoryOnly) {
+        List<NewsList> merged = null;
+        for (String url : mUrls) {
+            List<NewsList> news = memoryOnly ? mCache.getFromMemory(url) : mCache.get(url);
+            if (news != null) {
+                merged = mUrls.size() == 1 ? news
+                        : FeedFetcher.merge(merged == null ? new ArrayList<NewsList>() : merged, news, isOldestFirst());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Deliver the news on the main thread while the load goes on.
+     *
+     * @param onlyIfEmpty true to deliver them only if nothing has been shown yet
+     */
+    private void post(final List<NewsList> news, final boolean onlyIfEmpty) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if ((mNews == null || !onlyIfEmpty) && isStarted() && !isAbandoned()) {
+                    deliverResult(news);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deliver on the main thread the first news of a response still downloading, marked as partial.
+     */
+    private void postPartial(final List<NewsList> news, final CancellationSignal signal) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // a batch that arrives after the end of the load is not shown, the whole list is already there,
+                // and neither one of a load canceled
+                if (!mFinished && !signal.isCanceled() && isStarted() && !isAbandoned()) {
+                    mPartial = true;
+                    deliverResult(news);
+                    mPartial = false;
+                }
+            }
+        });
+    }
+
+    //the feed of more sections is sorted from the oldest news only if the user chose so
+    private boolean isOldestFirst() {
+        return "oldest".equals(Uri.parse(mUrls.get(0)).getQueryParameter("order-by"));
+    }
+
+    /**
+     * Called on the main thread when a newer load replaces this one: it stops waiting for the network,
+     * and the request is aborted if no other load needs it.
+     */
+    @Override
+    public void cancelLoadInBackground() {
+        synchronized (this) {
+            if (mCancellationSignal != null) {
+                mCancellationSignal.cancel();
+            }
+        }
+    }
+
+    /**
+     * The news are delivered only if they are different from the ones already shown.
+     */
+    @Override
+    public void deliverResult(List<NewsList> data) {
+        if (isReset()) {
+            return;
+        }
+        boolean finished = mFinished && !mPartial;
+        if (!shouldDeliver(data, mNews, mDeliveredPartial, finished, mDeliveredFinished)) {
+            return;
+        }
+        boolean repeated = data != null && !mDeliveredPartial && data.equals(mNews);
+        //the news given while the activity is stopped are not delivered, the load is started again with it
+        if (isStarted()) {
+            mNews = data;
+            mDeliveredPartial = mPartial;
+            mDeliveredFinished = finished;
+            mRepeated = repeated;
+            super.deliverResult(data);
+            mRepeated = false;
+        }
+    }
+
+    /**
+     * Return true if the news must be delivered: they are different from the last ones, or the last ones
+     * were partial, or they end the load. The last batch of a response can hold the whole page, and a refresh
+     * can find nothing new, without this the list would never know that the load has ended.
+     *
+     * @param finished     true if the news are the final ones of the load
+     * @param lastFinished true if the final news of the load have already been delivered
+     */
+    static boolean shouldDeliver(List<NewsList> data, List<NewsList> last, boolean lastPartial,
+                                 boolean finished, boolean lastFinished) {
+        return data == null || lastPartial || !data.equals(last) || (finished && !lastFinished);
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        mNews = null;
+    }
 }
@@ -0,0 +1,62 @@
+package com.example.android.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of results of The Guardian API: the news of the page and its position among all the pages.
+ */
+public class NewsPage {
+    private int mCurrentPage;
+    private int mPages;
+    private List<NewsList> mNews;
+
+    /**
+     * Constructor of an empty page, filled while the response is parsed.
+     */
+    public NewsPage() {
+        this(0, 0, new ArrayList<NewsList>());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param currentPage number of this page, starting from 1
+     * @param pages       number of pages available for the request
+     * @param news        list of news of this page
+     */
+    public NewsPage(int currentPage, int pages, List<NewsList> news) {
+        mCurrentPage = currentPage;
+        mPages = pages;
+        mNews = news;
+    }
+
+    //getter
+    public int getCurrentPage() {
+        return mCurrentPage;
+    }
+
+    public int getPages() {
+        return mPages;
+    }
+
+    public List<NewsList> getNews() {
+        return mNews;
+    }
+
+    //setter
+    public void setCurrentPage(int currentPage) {
+        mCurrentPage = currentPage;
+    }
+
+    public void setPages(int pages) {
+        mPages = pages;
+    }
+
+    /**
+     * Return true if there are other pages after this one.
+     */
+    public boolean hasNextPage() {
+        return mCurrentPage < mPages;
+    }
+}
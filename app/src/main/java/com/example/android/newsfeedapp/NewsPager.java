@@ -0,0 +1,389 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.AsyncTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paging engine of the list of news. The first page is the one loaded by {@link NewsLoader}, then
+ * the next page is loaded in background when the list is scrolled near its end.
+ * The news already shown in another page are removed, and only a window of pages is kept in memory:
+ * the pages far from the visible ones are dropped and loaded again from {@link NewsCache} when the
+ * list is scrolled back to them.
+ */
+public class NewsPager {
+    //max number of pages kept in memory
+    private static final int MAX_PAGES = 5;
+    //the next (or previous) page is loaded when there are less than these rows before the end of the list
+    private static final int PREFETCH_DISTANCE = 5;
+    //number of pages used until the server tells how many pages there are
+    private static final int UNKNOWN_PAGES = Integer.MAX_VALUE;
+
+    /**
+     * Receives the news when the pages in memory change.
+     */
+    public interface Listener {
+        /**
+         * @param news all the news of the pages in memory, in order
+         */
+        void onNewsChanged(List<NewsList> news);
+    }
+
+    /**
+     * Receives the end of a refresh started with {@link #refreshNewest}.
+     */
+    public interface RefreshListener {
+        /**
+         * @param status of the requests, THROTTLED if the RateLimiter dropped them
+         * @param added  number of news added at the top of the list, -1 if the refresh failed.
+         *               It is not called if the refresh is canceled by a new first page.
+         */
+        void onRefreshFinished(FetchResult.Status status, int added);
+    }
+
+    private final NewsCache mCache;
+    private final ArticleStore mArticles;
+    private final Listener mListener;
+    /**
+     * URL of the first page, the other pages are requested adding the page number
+     */
+    private String mUrl;
+    /**
+     * Pages in memory, from mFirstPage on
+     */
+    private final List<List<NewsList>> mPages = new ArrayList<>();
+    private int mFirstPage = 1;
+    private int mTotalPages;
+    /**
+     * Page of each news id, used to show every news only once
+     */
+    private final Map<String, Integer> mPageOfNews = new HashMap<>();
+    private PageTask mTask;
+    private RefreshTask mRefreshTask;
+
+    /**
+     * Constructs a new {@link NewsPager}.
+     *
+     * @param context  of the activity
+     * @param listener receives the news of the pages in memory
+     */
+    public NewsPager(Context context, Listener listener) {
+        mCache = NewsCache.getInstance(context);
+        mArticles = ArticleStore.getInstance(context);
+        mListener = listener;
+    }
+
+    /**
+     * Start from the first page of a new request, dropping all the pages loaded before.
+     *
+     * @param url  URL of the request
+     * @param news news of the first page
+     */
+    public void setFirstPage(String url, List<NewsList> news) {
+        cancel();
+        mUrl = url;
+        mPages.clear();
+        mPageOfNews.clear();
+        mFirstPage = 1;
+        // If the first page is empty there is nothing else to load
+        mTotalPages = news == null || news.isEmpty() ? 1 : UNKNOWN_PAGES;
+        mPages.add(removeDuplicates(1, news == null ? new ArrayList<NewsList>() : news));
+        mListener.onNewsChanged(getNews());
+    }
+
+    /**
+     * Drop all the pages.
+     */
+    public void reset() {
+        cancel();
+        mUrl = null;
+        mPages.clear();
+        mPageOfNews.clear();
+        mListener.onNewsChanged(getNews());
+    }
+
+    /**
+     * Stop the page being loaded, if any.
+     */
+    public void cancel() {
+        if (mTask != null) {
+            mTask.cancel(true);
+            mTask = null;
+        }
+        if (mRefreshTask != null) {
+            mRefreshTask.cancel(true);
+            mRefreshTask = null;
+        }
+    }
+
+    /**
+     * Ask the server only the news published after the most recent one of the first page, and add them
+     * at the top of the list. The first page keeps its size, so the oldest news are removed from its end
+     * and the pages after it are loaded again when the list is scrolled.
+     * Return false if the list cannot be refreshed this way, for example when it is sorted from the
+     * oldest news or it is empty: then the whole list has to be loaded again.
+     *
+     * @param urls     URLs of the first page of the requests shown, one for each section
+     * @param listener receives the end of the refresh, on the main thread
+     */
+    public boolean refreshNewest(List<String> urls, RefreshListener listener) {
+        if (urls.isEmpty() || mPages.isEmpty() || mFirstPage != 1 || mRefreshTask != null) {
+            return false;
+        }
+        long newest = NewsFormatter.NO_DATE;
+        for (NewsList item : mPages.get(0)) {
+            newest = Math.max(newest, item.getPublishedAt());
+        }
+        if (newest == NewsFormatter.NO_DATE) {
+            return false;
+        }
+        List<String> deltaUrls = new ArrayList<>();
+        for (String url : urls) {
+            if (!QueryUtils.isNewestFirst(url)) {
+                return false;
+            }
+            deltaUrls.add(QueryUtils.buildDeltaUrl(url, newest));
+        }
+        int pageSize = parsePageSize(urls.get(0), mPages.get(0).size());
+        mRefreshTask = new RefreshTask(deltaUrls, pageSize, listener);
+        mRefreshTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        return true;
+    }
+
+    /**
+     * Called when the list is scrolled, it loads the page after (or before) the ones in memory
+     * when the visible rows are near the end (or the start) of the list.
+     */
+    public void onScroll(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        if (mUrl == null || mTask != null || totalItemCount == 0) {
+            return;
+        }
+        int lastPage = mFirstPage + mPages.size() - 1;
+        if (firstVisibleItem + visibleItemCount >= totalItemCount - PREFETCH_DISTANCE && lastPage < mTotalPages) {
+            load(lastPage + 1);
+        } else if (firstVisibleItem <= PREFETCH_DISTANCE && mFirstPage > 1) {
+            load(mFirstPage - 1);
+        }
+    }
+
+    /**
+     * Return all the news of the pages in memory.
+     */
+    public List<NewsList> getNews() {
+        List<NewsList> news = new ArrayList<>();
+        for (List<NewsList> page : mPages) {
+            news.addAll(page);
+        }
+        return news;
+    }
+
+    private void load(int page) {
+        String pageUrl = Uri.parse(mUrl).buildUpon()
+                .appendQueryParameter("page", String.valueOf(page))
+                .build().toString();
+        // the pages before the first one in memory have been dropped, so they are in the cache
+        mTask = new PageTask(pageUrl, page, page < mFirstPage);
+        mTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Add the loaded page to the ones in memory, dropping the page at the other end of the window if needed.
+     */
+    private void onPageLoaded(NewsPage page) {
+        mTask = null;
+        int number = page.getCurrentPage();
+        int lastPage = mFirstPage + mPages.size() - 1;
+        if (page.getPages() > 0) {
+            mTotalPages = page.getPages();
+        }
+        if (number == lastPage + 1) {
+            if (page.getNews().isEmpty()) {
+                // if the server answered there are no more results after the last page,
+                // otherwise the request failed and it is tried again at the next scroll
+                if (page.getPages() > 0) {
+                    mTotalPages = lastPage;
+                }
+                return;
+            }
+            mPages.add(removeDuplicates(number, page.getNews()));
+            if (mPages.size() > MAX_PAGES) {
+                mPages.remove(0);
+                mFirstPage++;
+            }
+        } else if (number == mFirstPage - 1) {
+            mPages.add(0, removeDuplicates(number, page.getNews()));
+            mFirstPage--;
+            if (mPages.size() > MAX_PAGES) {
+                mPages.remove(mPages.size() - 1);
+            }
+        } else {
+            return;
+        }
+        mListener.onNewsChanged(getNews());
+    }
+
+    /**
+     * Add the most recent news at the top of the first page, keeping its size. The pages after it
+     * are dropped: the news moved to the next page would be missing or repeated.
+     * Return the number of news added.
+     */
+    private int onRefreshLoaded(List<NewsList> newest, int pageSize) {
+        mRefreshTask = null;
+        List<NewsList> firstPage = mPages.get(0);
+        List<NewsList> merged = FeedFetcher.merge(firstPage, newest, false);
+        int added = merged.size() - firstPage.size();
+        if (added == 0) {
+            return 0;
+        }
+        if (mTask != null) {
+            mTask.cancel(true);
+            mTask = null;
+        }
+        if (merged.size() > pageSize) {
+            merged = new ArrayList<>(merged.subList(0, pageSize));
+        }
+        mPages.clear();
+        mPageOfNews.clear();
+        mTotalPages = UNKNOWN_PAGES;
+        mPages.add(removeDuplicates(1, merged));
+        mListener.onNewsChanged(getNews());
+        //the first page of a single request is saved, so the next load shows it at once
+        if (mUrl != null) {
+            final String url = mUrl;
+            final List<NewsList> page = mPages.get(0);
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mCache.put(url, page);
+                }
+            });
+        }
+        return added;
+    }
+
+    private static int parsePageSize(String url, int defaultValue) {
+        try {
+            String pageSize = Uri.parse(url).getQueryParameter("page-size");
+            return pageSize == null ? defaultValue : Math.max(1, Integer.parseInt(pageSize));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Return the news of the page that are not in other pages.
+     */
+    private List<NewsList> removeDuplicates(int page, List<NewsList> news) {
+        List<NewsList> unique = new ArrayList<>();
+        for (NewsList item : news) {
+            String key = item.getKey();
+            Integer owner = mPageOfNews.get(key);
+            if (owner == null) {
+                mPageOfNews.put(key, page);
+                unique.add(item);
+            } else if (owner == page) {
+                unique.add(item);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Load a page on a background thread, from the network or from the cache.
+     */
+    private class PageTask extends AsyncTask<Void, Void, NewsPage> {
+        private final String mPageUrl;
+        private final int mPage;
+        private final boolean mFromCacheFirst;
+
+        PageTask(String pageUrl, int page, boolean fromCacheFirst) {
+            mPageUrl = pageUrl;
+            mPage = page;
+            mFromCacheFirst = fromCacheFirst;
+        }
+
+        @Override
+        protected NewsPage doInBackground(Void... params) {
+            if (mFromCacheFirst) {
+                List<NewsList> cached = mCache.get(mPageUrl);
+                if (cached != null) {
+                    NewsFormatter.prepare(cached);
+                    return new NewsPage(mPage, 0, cached);
+                }
+            }
+            // the task is canceled with an interrupt, that stops waiting for the pipeline
+            FetchResult result = RequestPipeline.fetch(mPageUrl, null);
+            if (result.isCanceled()) {
+                return new NewsPage(mPage, 0, new ArrayList<NewsList>());
+            }
+            NewsPage page = result.getPage();
+            page.setCurrentPage(mPage);
+            if (result.isSuccess()) {
+                if (!page.getNews().isEmpty()) {
+                    mCache.put(mPageUrl, page.getNews());
+                }
+            } else if (page.getNews().isEmpty() && !mFromCacheFirst) {
+                // without connection the page could still be in the cache
+                List<NewsList> cached = mCache.get(mPageUrl);
+                if (cached == null) {
+                    // or found among the articles stored
+                    cached = mArticles.search(mPageUrl);
+                }
+                if (!cached.isEmpty()) {
+                    page = new NewsPage(mPage, 0, cached);
+                }
+            }
+            NewsFormatter.prepare(page.getNews());
+            return page;
+        }
+
+        @Override
+        protected void onPostExecute(NewsPage page) {
+            if (mTask == this) {
+                onPageLoaded(page);
+            }
+        }
+    }
+
+    /**
+     * Load the news published after the most recent one shown, from all the requests of the list.
+     */
+    private class RefreshTask extends AsyncTask<Void, Void, FetchResult> {
+        private final List<String> mDeltaUrls;
+        private final int mPageSize;
+        private final RefreshListener mRefreshListener;
+
+        RefreshTask(List<String> deltaUrls, int pageSize, RefreshListener listener) {
+            mDeltaUrls = deltaUrls;
+            mPageSize = pageSize;
+            mRefreshListener = listener;
+        }
+
+        @Override
+        protected FetchResult doInBackground(Void... params) {
+            // the task is canceled with an interrupt, that cancels the requests of the feed
+            // the news shown are already there, so the refresh does not take the quota of the user's requests
+            FetchResult result = FeedFetcher.fetchAll(mDeltaUrls, false, RateLimiter.Priority.REFRESH, null, null);
+            NewsFormatter.prepare(result.getPage().getNews());
+            return result;
+        }
+
+        @Override
+        protected void onPostExecute(FetchResult result) {
+            if (mRefreshTask != this) {
+                return;
+            }
+            if (!result.isSuccess()) {
+                mRefreshTask = null;
+                mRefreshListener.onRefreshFinished(result.getStatus(), -1);
+                return;
+            }
+            mRefreshListener.onRefreshFinished(result.getStatus(), onRefreshLoaded(result.getPage().getNews(), mPageSize));
+        }
+    }
+}
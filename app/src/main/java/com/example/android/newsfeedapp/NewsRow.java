@@ -0,0 +1,71 @@
+package com.example.android.newsfeedapp;
+
+import android.util.LruCache;
+
+/**
+ * The values of a news as shown in a row of the list: the styled short description and the formatted date.
+ * They are not kept in {@link NewsList}, because the same news are held by the caches and the search index,
+ * where these values would only take memory. They are prepared on a background thread by
+ * {@link NewsFormatter#prepare} and kept here only for the news that the list can show.
+ */
+public final class NewsRow {
+    //the pages kept by NewsPager (5 pages of at most 40 news) and a first page merged from more sections
+    private static final int MAX_ROWS = 400;
+
+    //by key of the news, the row tells which news it was made from
+    private static final LruCache<String, NewsRow> sRows = new LruCache<>(MAX_ROWS);
+
+    private final NewsList mNews;
+    private final CharSequence mTrailText;
+    private final String mDate;
+
+    private NewsRow(NewsList news) {
+        mNews = news;
+        mTrailText = NewsFormatter.formatTrailText(news.getTrailText());
+        // the date is already parsed, only the numbers are formatted
+        if (news.getPublishedAt() == NewsFormatter.NO_DATE) {
+            String date = news.getWebPublicationDate();
+            mDate = NewsFormatter.formatDate(date == null ? "" : date);
+        } else {
+            mDate = NewsFormatter.formatDate(news.getPublishedAt());
+        }
+    }
+
+    private NewsRow(NewsList news, CharSequence trailText, String date) {
+        mNews = news;
+        mTrailText = trailText;
+        mDate = date;
+    }
+
+    /**
+     * Return the row of a news, it is prepared now if it has not been prepared before. It can be called on any thread.
+     */
+    public static NewsRow get(NewsList news) {
+        String key = news.getKey();
+        if (key == null) {
+            return new NewsRow(news);
+        }
+        NewsRow row = sRows.get(key);
+        if (row != null && row.mNews == news) {
+            return row;
+        }
+        if (row != null && row.mNews.equals(news)) {
+            //the same news of another list, like the cached one and the one of the network, the values are reused
+            row = new NewsRow(news, row.mTrailText, row.mDate);
+        } else {
+            //a new news, or one changed by a refresh
+            row = new NewsRow(news);
+        }
+        sRows.put(key, row);
+        return row;
+    }
+
+    //getter
+    public CharSequence getTrailText() {
+        return mTrailText;
+    }
+
+    public String getDate() {
+        return mDate;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v4.os.CancellationSignal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+/**
+ * Default {@link HttpTransport}, based on OkHttp. All the requests share one client, so the
+ * connections (and their TLS sessions) are kept alive and reused, HTTP/2 is used when the server
+ * supports it, multiplexing the requests on a single connection, and the responses are asked
+ * and decompressed with gzip. The timeouts of every request are chosen by {@link RequestPolicy}.
+ * The time of each stage of the requests is recorded in {@link Metrics}.
+ */
+public class OkHttpTransport implements HttpTransport {
+    //max number of idle connections kept in the pool
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    //time an idle connection is kept in the pool
+    private static final long KEEP_ALIVE_DURATION = 5; /* minutes */
+
+    private final OkHttpClient mClient;
+
+    /**
+     * Constructs a new {@link OkHttpTransport} with its own connection pool.
+     */
+    public OkHttpTransport() {
+        this(true);
+    }
+
+    /**
+     * Constructs a new {@link OkHttpTransport} with its own connection pool.
+     *
+     * @param recordMetrics false if the stages of the requests must not be recorded in {@link Metrics},
+     *                      like for the pictures, that would be mixed with the requests of the news
+     */
+    public OkHttpTransport(boolean recordMetrics) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION, TimeUnit.MINUTES));
+        if (recordMetrics) {
+            builder.eventListenerFactory(new EventListener.Factory() {
+                @Override
+                public EventListener create(Call call) {
+                    return new MetricsListener();
+                }
+            });
+        }
+        mClient = builder.build();
+    }
+
+    @Override
+    public Response get(String url, Map<String, String> headers, long connectTimeout, long readTimeout,
+                        CancellationSignal signal) throws IOException {
+        Request.Builder builder = new Request.Builder().url(url).get();
+        // OkHttp adds "Accept-Encoding: gzip" and decompresses the body by itself,
+        // as long as the header is not set here
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        // the client with other timeouts shares the connection pool and the threads of the main one
+        OkHttpClient client = mClient;
+        if (connectTimeout != mClient.connectTimeoutMillis() || readTimeout != mClient.readTimeoutMillis()) {
+            client = mClient.newBuilder()
+                    .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+        final Call call = client.newCall(builder.build());
+        if (signal != null) {
+            // canceling the call closes its stream, so a blocked read fails right away
+            signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    call.cancel();
+                }
+            });
+        }
+        return new OkHttpResponse(call.execute());
+    }
+
+    /**
+     * Records the stages of a call: DNS lookup, connection, time to first byte after the request is sent,
+     * and the download of the body. A connection reused from the pool has no DNS and connect times.
+     * The body is read while it is parsed, so its time includes the parsing.
+     */
+    private static class MetricsListener extends EventListener {
+        private long mDnsStart;
+        private long mConnectStart;
+        private long mRequestSent;
+        private long mBodyStart;
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            mDnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            Metrics.recordSince(Metrics.DNS, mDnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            mConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            Metrics.recordSince(Metrics.CONNECT, mConnectStart);
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            mRequestSent = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            Metrics.recordSince(Metrics.TIME_TO_FIRST_BYTE, mRequestSent);
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            mBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            Metrics.recordSince(Metrics.BODY, mBodyStart);
+            Metrics.record(Metrics.BYTES, byteCount);
+        }
+    }
+
+    /**
+     * {@link HttpTransport.Response} wrapping an OkHttp response.
+     */
+    private static class OkHttpResponse implements Response {
+        private final okhttp3.Response mResponse;
+
+        OkHttpResponse(okhttp3.Response response) {
+            mResponse = response;
+        }
+
+        @Override
+        public int getCode() {
+            return mResponse.code();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mResponse.header(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            ResponseBody body = mResponse.body();
+            if (body == null) {
+                throw new IOException("Response without body");
+            }
+            return body.byteStream();
+        }
+
+        @Override
+        public void close() {
+            // closing the body gives back the connection to the pool
+            mResponse.close();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.android.newsfeedapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.TrafficStats;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Background job that downloads the first page of every section of the settings, with the order and the
+ * number of results chosen by the user, and saves it in {@link NewsCache}. So opening the app or changing
+ * section finds the news already on the device.
+ * The requests are sent in small batches on the same connection, and the job stops when the bytes
+ * downloaded today reach the daily budget. The requests have the lowest priority of the {@link RateLimiter}:
+ * when they would use the quota needed by the user, the job stops and it is run again later.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class PrefetchJobService extends JobService {
+    public static final String LOG_TAG = PrefetchJobService.class.getName();
+    //max bytes downloaded by the job in a day
+    private static final long DAILY_BUDGET = 2L * 1024 * 1024; /* bytes */
+    //number of requests sent together
+    private static final int BATCH_SIZE = 3;
+    private static final long DAY = 24L * 60 * 60 * 1000; /* milliseconds */
+    //preferences where the bytes used today are saved
+    private static final String PREFS_NAME = "prefetch";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_BYTES = "bytes";
+
+    private Thread mThread;
+    //true when the system stops the job
+    private volatile boolean mStopped;
+    //true when the rate limiter dropped a request, so the job is postponed
+    private volatile boolean mThrottled;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        mStopped = false;
+        mThrottled = false;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prefetch();
+                // a job stopped by the system is not finished, it is run again
+                if (!mStopped) {
+                    // a job postponed by the rate limiter is run again with the backoff of the system
+                    jobFinished(params, mThrottled);
+                }
+            }
+        }, LOG_TAG);
+        mThread.start();
+        // the work goes on in background
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // the constraints are not satisfied anymore, so the requests running are aborted:
+        // the interrupt reaches the requests when the batch is stopped
+        mStopped = true;
+        if (mThread != null) {
+            mThread.interrupt();
+        }
+        return true;
+    }
+
+    private void prefetch() {
+        Context context = getApplicationContext();
+        QueryUtils.setArticleStore(ArticleStore.getInstance(context));
+        NewsCache cache = NewsCache.getInstance(context);
+        List<String> urls = new ArrayList<>();
+        for (String section : context.getResources().getStringArray(R.array.settings_section_values)) {
+            urls.add(QueryUtils.buildRequestUrl(context, null, section));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(BATCH_SIZE);
+        try {
+            for (int start = 0; start < urls.size() && !mStopped && !mThrottled; start += BATCH_SIZE) {
+                if (getBytesUsedToday() >= DAILY_BUDGET) {
+                    Log.v(LOG_TAG, "Daily budget used, the other sections are loaded tomorrow");
+                    return;
+                }
+                // the bytes received by the app while the batch runs, the job is the only one working now
+                long startBytes = TrafficStats.getUidRxBytes(Process.myUid());
+                List<Future<Boolean>> batch = new ArrayList<>();
+                for (String url : urls.subList(start, Math.min(start + BATCH_SIZE, urls.size()))) {
+                    batch.add(executor.submit(new PrefetchTask(url, cache)));
+                }
+                for (Future<Boolean> future : batch) {
+                    if (!future.get()) {
+                        mThrottled = true;
+                    }
+                }
+                long endBytes = TrafficStats.getUidRxBytes(Process.myUid());
+                if (startBytes != TrafficStats.UNSUPPORTED && endBytes >= startBytes) {
+                    addBytesUsedToday(endBytes - startBytes);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem prefetching the sections", e);
+        } finally {
+            // this interrupts the requests still running, the pipeline aborts the ones nobody waits for
+            executor.shutdownNow();
+        }
+    }
+
+    private long getBytesUsedToday() {
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long today = System.currentTimeMillis() / DAY;
+        return prefs.getLong(KEY_DAY, -1) == today ? prefs.getLong(KEY_BYTES, 0) : 0;
+    }
+
+    private void addBytesUsedToday(long bytes) {
+        long used = getBytesUsedToday() + bytes;
+        getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putLong(KEY_DAY, System.currentTimeMillis() / DAY)
+                .putLong(KEY_BYTES, used)
+                .apply();
+    }
+
+    /**
+     * Download the first page of a section and save it in the cache.
+     * It returns false if the request was dropped by the rate limiter.
+     */
+    private static class PrefetchTask implements Callable<Boolean> {
+        private final String mUrl;
+        private final NewsCache mCache;
+
+        PrefetchTask(String url, NewsCache cache) {
+            mUrl = url;
+            mCache = cache;
+        }
+
+        @Override
+        public Boolean call() {
+            FetchResult result = RequestPipeline.fetch(mUrl, null, RateLimiter.Priority.PREFETCH, null);
+            if (result.isSuccess() && !result.getPage().getNews().isEmpty()) {
+                mCache.put(mUrl, result.getPage().getNews());
+            }
+            return result.getStatus() != FetchResult.Status.THROTTLED;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.android.newsfeedapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+
+/**
+ * Schedules {@link PrefetchJobService}, that downloads the first page of every section in background.
+ * The job runs only on an unmetered network while the device is charging and idle, so it does not
+ * use the data plan or the battery of the user. JobScheduler exists from Lollipop, on older versions
+ * the sections are loaded only when they are opened.
+ */
+public final class PrefetchScheduler {
+    //id of the prefetch job, unique in the app
+    private static final int JOB_ID = 1001;
+    //the job runs at most once in this interval
+    private static final long PERIOD = 12L * 60 * 60 * 1000; /* milliseconds */
+
+    //this have a private constructor because no one should create an instance of this class.
+    private PrefetchScheduler() {
+    }
+
+    /**
+     * Schedule the prefetch job, if it is not already scheduled.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleJob(context.getApplicationContext());
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        // scheduling it again would restart its period, so an existing job is kept
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, PrefetchJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(PERIOD)
+                .setPersisted(true)
+                .build();
+        scheduler.schedule(job);
+    }
+}
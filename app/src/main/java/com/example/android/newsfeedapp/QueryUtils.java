@@ -1,48 +1,309 @@
 package com.example.android.newsfeedapp;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+import android.support.v4.os.CancellationSignal;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Helper methods related to requesting and receiving data from The Guardian API.
  */
 public final class QueryUtils {
     public static final String LOG_TAG = QueryUtils.class.getName();
+    /**
+     * Key of The Guardian OpenPlatform API, the same for the lists and the articles
+     */
+    private static final String API_KEY = "test";
+    /**
+     * URL for news list data from The Guardian OpenPlatform API using specific queries
+     */
+    private static final String REQUEST_URL = "https://content.guardianapis.com/search?page-size=20&show-tags=contributor&api-key=" + API_KEY;
+    /**
+     * URL of a single article, its id is added after the slash
+     */
+    private static final String ARTICLE_URL = "https://content.guardianapis.com/";
+    /**
+     * Transport used for all the requests, it keeps the connections alive between them
+     */
+    private static HttpTransport sTransport = new OkHttpTransport();
+    /**
+     * Store where every article parsed is saved with its body, null until the app sets it
+     */
+    private static volatile ArticleStore sArticleStore;
+    /**
+     * While a response is parsed, the news read are given to the listener every this many news
+     */
+    private static final int PROGRESS_BATCH_SIZE = 5;
+
+    /**
+     * Receives the news parsed while the response is still downloading, on the thread of the request.
+     */
+    public interface ProgressListener {
+        /**
+         * @param news all the news parsed until now, in order. The list is a copy owned by the listener
+         */
+        void onNewsParsed(List<NewsList> news);
+    }
 
     //this have a private constructor because no one should create an instance of this class.
     private QueryUtils() {
     }
 
+    /**
+     * Return the values of the sections chosen in the preferences, in the order of the settings.
+     * It returns only "all" if all the sections are chosen (or none).
+     * The single section saved by the old versions of the app is moved to the new preference.
+     */
+    public static List<String> getSections(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String allSections = context.getString(R.string.settings_section_default);
+        String sectionsKey = context.getString(R.string.settings_sections_key);
+        String oldSectionKey = context.getString(R.string.settings_section_key);
+        if (!sharedPrefs.contains(sectionsKey) && sharedPrefs.contains(oldSectionKey)) {
+            Set<String> migrated = new HashSet<>();
+            migrated.add(sharedPrefs.getString(oldSectionKey, allSections));
+            sharedPrefs.edit().putStringSet(sectionsKey, migrated).remove(oldSectionKey).apply();
+        }
+        Set<String> chosen = sharedPrefs.getStringSet(sectionsKey, Collections.singleton(allSections));
+        List<String> sections = new ArrayList<>();
+        if (!chosen.contains(allSections)) {
+            for (String section : context.getResources().getStringArray(R.array.settings_section_values)) {
+                if (chosen.contains(section)) {
+                    sections.add(section);
+                }
+            }
+        }
+        return sections.isEmpty() ? Arrays.asList(allSections) : sections;
+    }
+
+    /**
+     * Return the URL of a request with the order and the max number of results of the preferences,
+     * asking the whole articles.
+     *
+     * @param context of the app, used to read the preferences
+     * @param query   words to search, or null for the latest news
+     * @param section value of the section, "all" for no filter
+     */
+    public static String buildRequestUrl(Context context, String query, String section) {
+        return buildRequestUrl(context, query, section, FetchProfile.FULL);
+    }
+
+    /**
+     * Return the URL of a request with the order of the preferences, and the fields and the number
+     * of results of the profile chosen for the network.
+     *
+     * @param profile of the network, it can ask less news and no bodies
+     */
+    public static String buildRequestUrl(Context context, String query, String section, FetchProfile profile) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        //here get the preferences
+        String maxResults = sharedPrefs.getString(
+                context.getString(R.string.settings_max_results_key),
+                context.getString(R.string.settings_max_results_default));
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default)
+        );
+        //get the URL of the Guardian server
+        Uri baseUri = Uri.parse(REQUEST_URL);
+        //this is used to build the URL with the query parameters
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+        if (query != null && !query.isEmpty()) {
+            uriBuilder.appendQueryParameter("q", query); //this adds the query in the search box
+        }
+        uriBuilder.appendQueryParameter("page-size", String.valueOf(profile.getPageSize(parsePageSize(maxResults)))); //this adds the max news listed
+        uriBuilder.appendQueryParameter("show-fields", profile.getShowFields()); //this chooses what is downloaded of every news
+        uriBuilder.appendQueryParameter("order-by", orderBy.toLowerCase()); //here defines the order of the list
+        if (!section.equals("all")) {
+            uriBuilder.appendQueryParameter("section", section.toLowerCase()); //this filter the results for section
+        }
+        return uriBuilder.toString();
+    }
+
+    //the preference is saved as text, a wrong value uses the page of the API
+    private static int parsePageSize(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 20;
+        }
+    }
+
+    /**
+     * Return the URL of a request that asks only the news published from the given time on,
+     * used to refresh a list sorted from the most recent news.
+     *
+     * @param requestUrl URL of the first page of the request
+     * @param since      publication time of the most recent news already shown, in milliseconds
+     */
+    public static String buildDeltaUrl(String requestUrl, long since) {
+        return Uri.parse(requestUrl).buildUpon()
+                .appendQueryParameter("from-date", NewsFormatter.formatIsoDate(since))
+                .appendQueryParameter("use-date", "published")
+                .build().toString();
+    }
+
+    /**
+     * Return true if the news of the request are sorted from the most recent one, so a refresh can ask
+     * only the newer news. Without a query the relevance is the publication date too.
+     */
+    public static boolean isNewestFirst(String requestUrl) {
+        Uri uri = Uri.parse(requestUrl);
+        String orderBy = uri.getQueryParameter("order-by");
+        String query = uri.getQueryParameter("q");
+        return "newest".equals(orderBy) || ("relevance".equals(orderBy) && (query == null || query.isEmpty()));
+    }
+
     /**
      * Query the Guardian database and return an {@link QueryUtils} object to represent a single news.
+     * A response still fresh in the {@link HttpCache} is returned without making any request.
      */
     public static List<NewsList> fetchData(String requestUrl) {
+        return fetchPage(requestUrl).getNews();
+    }
+
+    /**
+     * Query the Guardian database and return the page of results of the request, with the number
+     * of the page and how many pages there are. The page is empty if the request failed.
+     */
+    public static NewsPage fetchPage(String requestUrl) {
+        return fetch(requestUrl, null).getPage();
+    }
+
+    /**
+     * Query the Guardian database and return the page of results of the request, with how the request ended.
+     * A request that fails for the network or the server is sent again, following the {@link RequestPolicy}.
+     * When the signal is canceled, the request is aborted and the parsing stops: the news read until
+     * then are returned, but they are not cached.
+     */
+    public static FetchResult fetch(String requestUrl, CancellationSignal signal) {
+        return fetch(requestUrl, signal, RateLimiter.Priority.INTERACTIVE, null);
+    }
+
+    /**
+     * As {@link #fetch(String, CancellationSignal)}, and the news are also given to the listener (if any)
+     * in small batches while they are parsed, so they can be shown before the whole response arrives.
+     * The first batch is given as soon as the first news is read.
+     *
+     * @param priority of the request for the {@link RateLimiter}, a request of low priority can be THROTTLED
+     */
+    public static FetchResult fetch(String requestUrl, CancellationSignal signal, RateLimiter.Priority priority,
+                                    ProgressListener listener) {
+        String cacheKey = HttpCache.canonicalUrl(requestUrl);
+        HttpCache.Entry cached = HttpCache.get(cacheKey);
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            return new FetchResult(FetchResult.Status.SUCCESS, cached.getPage(), HttpURLConnection.HTTP_OK);
+        }
         // Create URL object
         URL url = createUrl(requestUrl);
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
+        if (url == null) {
+            return new FetchResult(FetchResult.Status.HTTP_ERROR, 0);
+        }
+        // Perform HTTP request to the URL and extract the list of news while the response is read
+        FetchResult result = makeHttpRequest(url, cacheKey, cached, signal, priority, listener);
+        int attempts = 1;
+        while (attempts < RequestPolicy.MAX_ATTEMPTS && RequestPolicy.isRetryable(result)) {
+            //the requests that failed together are not sent again all at the same time
+            if (!RequestPolicy.sleep(RequestPolicy.getBackoffDelay(attempts), signal)) {
+                result = new FetchResult(FetchResult.Status.CANCELED, result.getPage(), result.getCode());
+                break;
+            }
+            attempts++;
+            result = makeHttpRequest(url, cacheKey, HttpCache.get(cacheKey), signal, priority, listener);
+        }
+        result.setAttempts(attempts);
+        Metrics.record(Metrics.ATTEMPTS, attempts);
+        return result;
+    }
+
+    /**
+     * Download a single article with its body, for the news whose body is not in the {@link ArticleStore}.
+     * The article is also saved in the store. Return null if the request failed, was canceled or was
+     * dropped by the {@link RateLimiter}.
+     *
+     * @param id       id of the news in The Guardian API, like "world/2017/jul/15/..."
+     * @param priority INTERACTIVE for the article opened, PREFETCH for the ones that could be opened
+     */
+    public static ArticleStore.Article fetchArticle(String id, RateLimiter.Priority priority, CancellationSignal signal) {
+        if (id == null || id.isEmpty()) {
+            return null;
+        }
+        if (!RateLimiter.acquire(priority, signal)) {
+            return null;
+        }
+        Uri.Builder uriBuilder = Uri.parse(ARTICLE_URL).buildUpon().appendEncodedPath(id);
+        uriBuilder.appendQueryParameter("show-tags", "contributor");
+        uriBuilder.appendQueryParameter("show-fields", "all");
+        uriBuilder.appendQueryParameter("api-key", API_KEY);
+        HttpTransport.Response response = null;
         try {
-            jsonResponse = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, e.getMessage());
+            response = RequestPolicy.execute(sTransport, uriBuilder.toString(), new HashMap<String, String>(), priority, signal);
+            if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
+                return null;
+            }
+            ArticleStore.Article article = readArticle(response.getBody());
+            ArticleStore store = sArticleStore;
+            if (article != null && store != null) {
+                store.putAll(Collections.singletonList(article));
+            }
+            return article;
+        } catch (IOException | IllegalStateException e) {
+            if (signal == null || !signal.isCanceled()) {
+                Log.e(LOG_TAG, "Problem loading the article: " + e.getMessage());
+            }
+            return null;
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            if (response != null) {
+                try {
+                    response.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the response", e);
+                }
+            }
         }
-        // Extract relevant fields from the JSON response and create a list of news
-        List<NewsList> news = extractData(jsonResponse);
-        return news;
+    }
+
+    /**
+     * Replace the transport used for the requests, for example with one that serves recorded responses.
+     */
+    public static void setTransport(HttpTransport transport) {
+        sTransport = transport;
+    }
+
+    /**
+     * Set the store where the articles parsed are saved, so they can be searched without connection.
+     */
+    public static void setArticleStore(ArticleStore store) {
+        sArticleStore = store;
     }
 
     /**
@@ -59,66 +320,100 @@ public final class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return the page of news parsed from the response.
+     * If there is a cached response, the request is conditional and a 304 answer returns the cached news
+     * without downloading and parsing the body again.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
-        // If the URL is null, then return early.
-        if (url == null) {
-            return jsonResponse;
+    private static FetchResult makeHttpRequest(URL url, String cacheKey, HttpCache.Entry cached, CancellationSignal signal,
+                                               RateLimiter.Priority priority, ProgressListener listener) {
+        NewsPage page = new NewsPage();
+        //send the validators of the cached response, so the server can answer 304 if nothing changed
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                headers.put("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                headers.put("If-Modified-Since", cached.getLastModified());
+            }
         }
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
+        //every attempt uses the quota of the key, the ones of low priority can be dropped
+        if (!RateLimiter.acquire(priority, signal)) {
+            boolean canceled = signal != null && signal.isCanceled();
+            return new FetchResult(canceled ? FetchResult.Status.CANCELED : FetchResult.Status.THROTTLED, 0);
+        }
+        HttpTransport.Response response = null;
+        FetchResult result;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            //the timeouts follow the network, and a slow request can be sent twice
+            response = RequestPolicy.execute(sTransport, url.toString(), headers, priority, signal);
+            int responseCode = response.getCode();
+            String cacheControl = response.getHeader("Cache-Control");
+            long expiresAt = System.currentTimeMillis()
+                    + HttpCache.freshnessLifetime(cacheControl, response.getHeader("Age")) * 1000;
             // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // then parse the response directly from the input stream.
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                long parseStart = System.nanoTime();
+                boolean complete = readData(response.getBody(), page, signal, listener);
+                Metrics.recordSince(Metrics.PARSE, parseStart);
+                Metrics.record(Metrics.ITEMS, page.getNews().size());
+                //a truncated response is never cached, otherwise a 304 would keep returning it
+                HttpCache.Entry entry = new HttpCache.Entry(response.getHeader("ETag"),
+                        response.getHeader("Last-Modified"), expiresAt, page);
+                if (complete && HttpCache.isCacheable(cacheControl) && (entry.hasValidators() || entry.isFresh(System.currentTimeMillis()))) {
+                    HttpCache.put(cacheKey, entry);
+                }
+                if (complete) {
+                    result = new FetchResult(FetchResult.Status.SUCCESS, page, responseCode);
+                } else if (signal != null && signal.isCanceled()) {
+                    result = new FetchResult(FetchResult.Status.CANCELED, page, responseCode);
+                } else {
+                    result = new FetchResult(FetchResult.Status.PARTIAL, page, responseCode);
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // The cached response is still valid, so it is used for a new freshness lifetime
+                HttpCache.put(cacheKey, cached.withExpiresAt(expiresAt));
+                result = new FetchResult(FetchResult.Status.SUCCESS, cached.getPage(), responseCode);
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
+                result = new FetchResult(FetchResult.Status.HTTP_ERROR, responseCode);
             }
         } catch (IOException e) {
-            Log.e(LOG_TAG, e.getMessage());
-        } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            if (signal != null && signal.isCanceled()) {
+                result = new FetchResult(FetchResult.Status.CANCELED, 0);
+            } else if (e instanceof SocketTimeoutException) {
+                Log.e(LOG_TAG, "Timeout: " + e.getMessage());
+                result = new FetchResult(FetchResult.Status.TIMEOUT, 0);
+            } else {
+                Log.e(LOG_TAG, "Problem making the request: " + e.getMessage());
+                result = new FetchResult(FetchResult.Status.NETWORK_ERROR, 0);
             }
-            if (inputStream != null) {
-                inputStream.close();
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
             }
-        }
-        return jsonResponse;
-    }
-
-    /**
-     * Convert the InputStream into a String which contains the
-     * whole JSON response from the server.
-     */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
+            //the connection is not closed, closing the response gives it back to the transport to be reused
+            if (response != null) {
+                try {
+                    response.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the response", e);
+                }
             }
         }
-        return output.toString();
+        return result;
     }
 
     /**
      * Return a list of {@link NewsList} objects that has been built up from parsing a JSON response.
      */
     public static List<NewsList> extractData(String jsonResponse) {
+        long parseStart = System.nanoTime();
         ArrayList<NewsList> newsList = new ArrayList<>();
+        //the articles with their body, only if there is a store where to save them
+        ArticleStore store = sArticleStore;
+        List<ArticleStore.Article> articles = new ArrayList<>();
         // Try to parse the JSON Response.
         try {
             //This creates the root JSONObject by calling jsonResponse
@@ -132,10 +427,18 @@ public final class QueryUtils {
                     //here there is pulled out the JSON object at the specified position
                     JSONObject singleNews = newsArray.getJSONObject(i);
                     //here there is extracted out the results key.
+                    String id = ""; //this gets the unique id of news
+                    if (singleNews.has("id")) {
+                        id = singleNews.getString("id");
+                    }
                     String webTitle = "";//this gets the title of news
                     if (singleNews.has("webTitle")) {
                         webTitle = singleNews.getString("webTitle");
                     }
+                    String sectionId = ""; //this gets the section id, used in the requests
+                    if (singleNews.has("sectionId")) {
+                        sectionId = singleNews.getString("sectionId");
+                    }
                     String sectionName = ""; //this gets the section name
                     if (singleNews.has("sectionName")) {
                         sectionName = singleNews.getString("sectionName");
@@ -162,16 +465,27 @@ public final class QueryUtils {
                         }
                     }
                     String trailText = ""; //this gets a short description
+                    String thumbnail = ""; //this gets the url of the picture shown in the list
+                    String body = ""; //this gets the body of the article, it is only saved in the store
                     if (singleNews.has("fields")) {
                         JSONObject fields = singleNews.getJSONObject("fields");
                         if (fields.has("trailText")) {
                             trailText = fields.getString("trailText");
                         }
+                        if (fields.has("thumbnail")) {
+                            thumbnail = fields.getString("thumbnail");
+                        }
+                        if (store != null && fields.has("body")) {
+                            body = fields.getString("body");
+                        }
                     }
                     //here it is create a new NewsList object with all data extracted from JSON
-                    NewsList news = new NewsList(webTitle, sectionName, webPublicationDate, webUrl, authorName, trailText);
+                    NewsList news = new NewsList(id, webTitle, sectionName, webPublicationDate, webUrl, authorName, trailText, thumbnail);
                     //add the NewsList object to the Array
                     newsList.add(news);
+                    if (store != null) {
+                        articles.add(new ArticleStore.Article(news, sectionId, body));
+                    }
                 }
             } else {
                 Log.v(LOG_TAG, "No results found");
@@ -181,6 +495,267 @@ public final class QueryUtils {
             // Catch the exception so the app doesn't crash, and print the following error message to the logs.
             Log.e(LOG_TAG, e.getMessage());
         }
+        Metrics.recordSince(Metrics.PARSE, parseStart);
+        Metrics.record(Metrics.ITEMS, newsList.size());
+        //the news extracted can be found while typing in the search field
+        SearchIndex.addAll(newsList);
+        //and also without connection, with their body
+        if (store != null && !articles.isEmpty()) {
+            store.putAll(articles);
+        }
         return newsList;
     }
+
+    /**
+     * Return a list of {@link NewsList} objects parsed in a single pass from a JSON response stream.
+     * Only the fields shown in the list are read, everything else is skipped without being loaded in memory;
+     * the article body is read only to be saved in the {@link ArticleStore}, when it is set.
+     * The result is the same of {@link #extractData(String)}.
+     */
+    public static List<NewsList> extractData(InputStream inputStream) throws IOException {
+        NewsPage page = new NewsPage();
+        readData(inputStream, page, null, null);
+        return page.getNews();
+    }
+
+    /**
+     * Fill the page with the news parsed from a JSON response stream, until the signal (if any) is canceled.
+     * The news read are given to the listener (if any) while the stream is read.
+     * Return true if the whole response has been read, false if it is truncated, malformed or canceled.
+     */
+    private static boolean readData(InputStream inputStream, NewsPage page, CancellationSignal signal,
+                                    ProgressListener listener) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        ArticleStore store = sArticleStore;
+        List<ArticleStore.Article> articles = store == null ? null : new ArrayList<ArticleStore.Article>();
+        try {
+            boolean hasResponse = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("response") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    hasResponse = true;
+                    readResponse(reader, page, articles, signal, listener);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!hasResponse) {
+                Log.e(LOG_TAG, "No value for response");
+            }
+            return hasResponse;
+        } catch (CanceledException e) {
+            return false;
+        } catch (IOException | IllegalStateException e) {
+            //If the stream is truncated or the JSON is not formatted as expected, it keeps the news read until now
+            // as it happens with extractData(String), and print the following error message to the logs.
+            if (signal == null || !signal.isCanceled()) {
+                Log.e(LOG_TAG, "Problem parsing the JSON results: " + e.getMessage());
+            }
+            return false;
+        } finally {
+            //the news read, also from a truncated response, can be found while typing in the search field
+            SearchIndex.addAll(page.getNews());
+            //and also without connection, with their body
+            if (articles != null && !articles.isEmpty()) {
+                store.putAll(articles);
+            }
+            reader.close();
+        }
+    }
+
+    /**
+     * Read the response of a single article: the "content" object of the "response" object.
+     * Return null if there is no content.
+     */
+    private static ArticleStore.Article readArticle(InputStream inputStream) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        ArticleStore.Article article = null;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("response") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("content") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            article = readNews(reader, true);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            reader.close();
+        }
+        return article;
+    }
+
+    /**
+     * Return true if the news parsed until now are given to the progress listener: the first one, so it
+     * is shown as soon as possible, and then every batch. The last batch of a page can be the whole page.
+     */
+    static boolean isProgressBatch(int parsed) {
+        return parsed == 1 || parsed % PROGRESS_BATCH_SIZE == 0;
+    }
+
+    /**
+     * Read the "response" object: the page numbers and each news of the "results" array.
+     * If the list of articles is not null, the news are also added to it with their body.
+     * The listener (if any) gets the first news and then every batch of news read.
+     */
+    private static void readResponse(JsonReader reader, NewsPage page, List<ArticleStore.Article> articles,
+                                     CancellationSignal signal, ProgressListener listener) throws IOException {
+        boolean hasResults = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "currentPage":
+                    page.setCurrentPage(reader.nextInt());
+                    break;
+                case "pages":
+                    page.setPages(reader.nextInt());
+                    break;
+                case "results":
+                    hasResults = true;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        //the parsing stops as soon as the request is not needed anymore
+                        if (signal != null && signal.isCanceled()) {
+                            throw new CanceledException();
+                        }
+                        ArticleStore.Article article = readNews(reader, articles != null);
+                        page.getNews().add(article.getNews());
+                        if (articles != null) {
+                            articles.add(article);
+                        }
+                        int parsed = page.getNews().size();
+                        if (listener != null && isProgressBatch(parsed)) {
+                            listener.onNewsParsed(new ArrayList<>(page.getNews()));
+                        }
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!hasResults) {
+            Log.v(LOG_TAG, "No results found");
+        }
+    }
+
+    /**
+     * Read a single news object of the "results" array, with its body only if it is needed.
+     */
+    private static ArticleStore.Article readNews(JsonReader reader, boolean readBody) throws IOException {
+        String id = "";
+        String sectionId = "";
+        String body = "";
+        String webTitle = "";
+        String sectionName = "";
+        String webPublicationDate = "";
+        String webUrl = "";
+        String authorName = "";
+        String trailText = "";
+        String thumbnail = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "webTitle":
+                    webTitle = readString(reader);
+                    break;
+                case "sectionId":
+                    sectionId = readString(reader);
+                    break;
+                case "sectionName":
+                    sectionName = readString(reader);
+                    break;
+                case "webPublicationDate":
+                    webPublicationDate = readString(reader);
+                    break;
+                case "webUrl":
+                    webUrl = readString(reader);
+                    break;
+                case "tags":
+                    //the author is the title of the first contributor tag
+                    reader.beginArray();
+                    if (reader.hasNext()) {
+                        String firstAuthor = readValue(reader, "webTitle");
+                        if (firstAuthor != null) {
+                            authorName = firstAuthor;
+                        }
+                    }
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                    break;
+                case "fields":
+                    //here the other fields are skipped, only the short description, the picture and the body are read
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if (field.equals("trailText")) {
+                            trailText = readString(reader);
+                        } else if (field.equals("thumbnail")) {
+                            thumbnail = readString(reader);
+                        } else if (readBody && field.equals("body")) {
+                            body = readString(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        NewsList news = new NewsList(id, webTitle, sectionName, webPublicationDate, webUrl, authorName, trailText, thumbnail);
+        return new ArticleStore.Article(news, sectionId, body);
+    }
+
+    /**
+     * Read an object and return the value of the given key, or null if it is missing. Other keys are skipped.
+     */
+    private static String readValue(JsonReader reader, String key) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(key)) {
+                value = readString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    /**
+     * Read a value as a String, a JSON null is read as "null" like JSONObject.getString does.
+     */
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return "null";
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Thrown to stop the parsing when the request has been canceled.
+     */
+    private static class CanceledException extends IOException {
+    }
 }
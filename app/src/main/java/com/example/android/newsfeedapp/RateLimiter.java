@@ -0,0 +1,295 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v4.os.CancellationSignal;
+import android.util.Log;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Budget of the requests to The Guardian API, that all use the same key. It is a token bucket: every
+ * request takes a token and the tokens come back at the rate allowed by the server. The limits are read
+ * from the X-RateLimit-* headers of the responses, and a 429 answer stops all the requests for the
+ * time asked in Retry-After.
+ * The requests waiting for a token are served by priority: what the user is waiting for first, then the
+ * refreshes, then the prefetch. The last tokens of the bucket and of the day are kept for the user, so
+ * a prefetch is dropped (and done later) instead of waiting, and a refresh waits only for a while.
+ */
+public final class RateLimiter {
+    public static final String LOG_TAG = RateLimiter.class.getName();
+
+    /**
+     * Who is waiting for a request, from the most important.
+     */
+    public enum Priority {
+        //the user is waiting for it, like a search or the next page of the list
+        INTERACTIVE,
+        //news already shown are loaded again
+        REFRESH,
+        //news that could be needed later, they can wait for another time
+        PREFETCH
+    }
+
+    //limits used before the server tells its own ones
+    private static final int DEFAULT_CAPACITY = 5;
+    private static final double DEFAULT_RATE = 1; /* tokens per second */
+    //the bucket never holds more than these tokens, so a burst does not use the quota of a whole minute
+    private static final int MAX_CAPACITY = 10;
+    //tokens kept in the bucket for the higher priorities, by priority
+    private static final int[] RESERVED_TOKENS = {0, 1, 2};
+    //part of the daily quota kept for the higher priorities, by priority
+    private static final double[] RESERVED_DAY = {0, 0.02, 0.1};
+    //max time a refresh waits for a token before it is given up
+    private static final long MAX_REFRESH_WAIT = 10000; /* milliseconds */
+    //pause after a 429 answer without Retry-After
+    private static final long DEFAULT_RETRY_AFTER = 5000; /* milliseconds */
+
+    private static final Object sLock = new Object();
+    //the requests waiting for a token, the first one is the only one that can take it
+    private static final PriorityQueue<Waiter> sWaiters = new PriorityQueue<>(11, new Comparator<Waiter>() {
+        @Override
+        public int compare(Waiter first, Waiter second) {
+            if (first.mPriority != second.mPriority) {
+                return first.mPriority.compareTo(second.mPriority);
+            }
+            return first.mSequence < second.mSequence ? -1 : (first.mSequence == second.mSequence ? 0 : 1);
+        }
+    });
+    private static long sSequence;
+    private static int sCapacity = DEFAULT_CAPACITY;
+    private static double sRate = DEFAULT_RATE;
+    private static double sTokens = DEFAULT_CAPACITY;
+    //time of the last refill, in milliseconds of now()
+    private static long sLastRefill = Long.MIN_VALUE;
+    //no request is sent before this time
+    private static long sPausedUntil = Long.MIN_VALUE;
+    //quota of the day told by the server, -1 if unknown
+    private static int sDayLimit = -1;
+    private static int sDayRemaining = -1;
+
+    //this have a private constructor because no one should create an instance of this class.
+    private RateLimiter() {
+    }
+
+    /**
+     * Wait for a token to send a request. Return false if the request must not be sent: the signal
+     * has been canceled (or the thread interrupted), or the budget is kept for the requests of higher priority.
+     * A prefetch never waits, a refresh waits at most 10 seconds, the requests of the user wait as long as needed.
+     */
+    public static boolean acquire(Priority priority, CancellationSignal signal) {
+        Waiter waiter;
+        synchronized (sLock) {
+            long now = now();
+            if (tryAcquire(priority, now)) {
+                return true;
+            }
+            if (priority == Priority.PREFETCH || !hasDayBudget(priority)) {
+                Log.v(LOG_TAG, "Request of priority " + priority + " dropped, the budget is kept for the user");
+                return false;
+            }
+            waiter = new Waiter(priority, sSequence++);
+            sWaiters.add(waiter);
+        }
+        if (signal != null) {
+            signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    synchronized (sLock) {
+                        sLock.notifyAll();
+                    }
+                }
+            });
+        }
+        try {
+            long deadline = priority == Priority.REFRESH ? now() + MAX_REFRESH_WAIT : Long.MAX_VALUE;
+            synchronized (sLock) {
+                while (signal == null || !signal.isCanceled()) {
+                    long now = now();
+                    if (sWaiters.peek() == waiter && takeToken(priority, now)) {
+                        return true;
+                    }
+                    //the daily quota does not come back while waiting, the tokens would not help
+                    if (!hasDayBudget(priority)) {
+                        Log.v(LOG_TAG, "Request of priority " + priority + " dropped, the budget is kept for the user");
+                        return false;
+                    }
+                    if (now >= deadline) {
+                        Log.v(LOG_TAG, "Request of priority " + priority + " waited too long for a token");
+                        return false;
+                    }
+                    sLock.wait(Math.max(1, Math.min(getWaitTime(priority, now), deadline - now)));
+                }
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            synchronized (sLock) {
+                sWaiters.remove(waiter);
+                //the next waiter could take a token now
+                sLock.notifyAll();
+            }
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+        }
+    }
+
+    /**
+     * Read the limits from the headers of a response of the API, and stop the requests after a 429 answer.
+     */
+    public static void onResponse(HttpTransport.Response response) {
+        update(response.getCode(), response.getHeader("X-RateLimit-Limit-minute"), response.getHeader("X-RateLimit-Remaining-minute"),
+                response.getHeader("X-RateLimit-Limit-day"), response.getHeader("X-RateLimit-Remaining-day"),
+                response.getHeader("Retry-After"), now());
+        if (response.getCode() == 429) {
+            Log.e(LOG_TAG, "Rate limit reached, the requests are paused");
+        }
+    }
+
+    /**
+     * Take a token without waiting, return false if there is none now for the priority.
+     * It is used for the requests that are only useful if they are sent right away.
+     */
+    public static boolean tryAcquire(Priority priority) {
+        return tryAcquire(priority, now());
+    }
+
+    /**
+     * Take a token if there is one for the priority and nobody more important is waiting.
+     */
+    static boolean tryAcquire(Priority priority, long now) {
+        synchronized (sLock) {
+            return sWaiters.isEmpty() && takeToken(priority, now);
+        }
+    }
+
+    /**
+     * Adjust the bucket to what the server tells, the values are the ones of the headers (null if missing).
+     */
+    static void update(int code, String minuteLimit, String minuteRemaining, String dayLimit, String dayRemaining,
+                       String retryAfter, long now) {
+        synchronized (sLock) {
+            refill(now);
+            int limit = parseInt(minuteLimit);
+            if (limit > 0) {
+                sRate = limit / 60.0;
+                sCapacity = Math.max(1, Math.min(MAX_CAPACITY, limit));
+                sTokens = Math.min(sTokens, sCapacity);
+            }
+            int remaining = parseInt(minuteRemaining);
+            if (remaining >= 0) {
+                //the other apps with the same key used the rest of the minute
+                sTokens = Math.min(sTokens, remaining);
+            }
+            int day = parseInt(dayLimit);
+            if (day > 0) {
+                sDayLimit = day;
+            }
+            int dayLeft = parseInt(dayRemaining);
+            if (dayLeft >= 0) {
+                sDayRemaining = dayLeft;
+            }
+            if (code == 429) {
+                int seconds = parseInt(retryAfter);
+                sPausedUntil = now + (seconds >= 0 ? seconds * 1000L : DEFAULT_RETRY_AFTER);
+                sTokens = 0;
+            }
+            sLock.notifyAll();
+        }
+    }
+
+    /**
+     * Go back to the default limits, with a full bucket.
+     */
+    static void reset() {
+        synchronized (sLock) {
+            sCapacity = DEFAULT_CAPACITY;
+            sRate = DEFAULT_RATE;
+            sTokens = DEFAULT_CAPACITY;
+            sLastRefill = Long.MIN_VALUE;
+            sPausedUntil = Long.MIN_VALUE;
+            sDayLimit = -1;
+            sDayRemaining = -1;
+            sWaiters.clear();
+        }
+    }
+
+    //called with the lock held
+    private static boolean takeToken(Priority priority, long now) {
+        refill(now);
+        if (now < sPausedUntil || !hasDayBudget(priority)) {
+            return false;
+        }
+        if (sTokens < neededTokens(priority)) {
+            return false;
+        }
+        sTokens -= 1;
+        if (sDayRemaining > 0) {
+            sDayRemaining--;
+        }
+        return true;
+    }
+
+    //the token taken and the ones kept for the higher priorities, a small bucket keeps less of them
+    private static int neededTokens(Priority priority) {
+        return 1 + Math.min(RESERVED_TOKENS[priority.ordinal()], sCapacity - 1);
+    }
+
+    //the requests of the user are always sent, the server answers 429 when the quota is really over
+    private static boolean hasDayBudget(Priority priority) {
+        if (priority == Priority.INTERACTIVE || sDayLimit <= 0 || sDayRemaining < 0) {
+            return true;
+        }
+        return sDayRemaining > 0 && sDayRemaining > sDayLimit * RESERVED_DAY[priority.ordinal()];
+    }
+
+    //milliseconds before the priority could have a token
+    private static long getWaitTime(Priority priority, long now) {
+        long wait = sPausedUntil == Long.MIN_VALUE ? 0 : sPausedUntil - now;
+        double missing = neededTokens(priority) - sTokens;
+        if (missing > 0) {
+            wait = Math.max(wait, (long) Math.ceil(missing / sRate * 1000));
+        }
+        return wait;
+    }
+
+    private static void refill(long now) {
+        if (sLastRefill != Long.MIN_VALUE && now > sLastRefill) {
+            sTokens = Math.min(sCapacity, sTokens + (now - sLastRefill) * sRate / 1000);
+        }
+        if (sLastRefill == Long.MIN_VALUE || now > sLastRefill) {
+            sLastRefill = now;
+        }
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //a clock that does not change with the time of the device
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * A request waiting for a token.
+     */
+    private static class Waiter {
+        private final Priority mPriority;
+        private final long mSequence;
+
+        Waiter(Priority priority, long sequence) {
+            mPriority = priority;
+            mSequence = sequence;
+        }
+    }
+}
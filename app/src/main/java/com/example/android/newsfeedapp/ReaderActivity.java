@@ -0,0 +1,128 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.text.method.LinkMovementMethod;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+/**
+ * Shows the body of a news already downloaded with the list, so it opens without connection and
+ * without starting the browser. The browser is still used for the news without a body.
+ */
+public class ReaderActivity extends AppCompatActivity implements ArticleReader.Callback {
+    public static final String LOG_TAG = ReaderActivity.class.getName();
+    //the values of the news given by the list
+    private static final String EXTRA_ID = "news_id";
+    private static final String EXTRA_TITLE = "news_title";
+    private static final String EXTRA_SECTION = "news_section";
+    private static final String EXTRA_DATE = "news_date";
+    private static final String EXTRA_URL = "news_url";
+    private static final String EXTRA_AUTHOR = "news_author";
+    private static final String EXTRA_TRAIL_TEXT = "news_trail_text";
+    private static final String EXTRA_THUMBNAIL = "news_thumbnail";
+    //time of the click on the row, to measure how long the body takes to be shown
+    private static final String EXTRA_OPENED_AT = "opened_at";
+
+    private NewsList news;
+    private ArticleReader reader;
+    private TextView bodyTextView;
+    private ProgressBar loadingIndicator;
+    private Button browserButton;
+
+    /**
+     * Return the intent that opens the news in the reader.
+     */
+    public static Intent newIntent(Context context, NewsList news) {
+        Intent intent = new Intent(context, ReaderActivity.class);
+        intent.putExtra(EXTRA_ID, news.getId());
+        intent.putExtra(EXTRA_TITLE, news.getWebTitle());
+        intent.putExtra(EXTRA_SECTION, news.getSectionName());
+        intent.putExtra(EXTRA_DATE, news.getWebPublicationDate());
+        intent.putExtra(EXTRA_URL, news.getWebUrl());
+        intent.putExtra(EXTRA_AUTHOR, news.getAuthor());
+        intent.putExtra(EXTRA_TRAIL_TEXT, news.getTrailText());
+        intent.putExtra(EXTRA_THUMBNAIL, news.getThumbnail());
+        intent.putExtra(EXTRA_OPENED_AT, System.nanoTime());
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reader);
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        Intent intent = getIntent();
+        news = new NewsList(intent.getStringExtra(EXTRA_ID), intent.getStringExtra(EXTRA_TITLE),
+                intent.getStringExtra(EXTRA_SECTION), intent.getStringExtra(EXTRA_DATE), intent.getStringExtra(EXTRA_URL),
+                intent.getStringExtra(EXTRA_AUTHOR), intent.getStringExtra(EXTRA_TRAIL_TEXT), intent.getStringExtra(EXTRA_THUMBNAIL));
+        setTitle(news.getSectionName());
+        //the header is the same of the row in the list
+        TextView titleTextView = (TextView) findViewById(R.id.reader_title);
+        titleTextView.setText(news.getWebTitle());
+        TextView authorTextView = (TextView) findViewById(R.id.reader_author);
+        authorTextView.setText(news.getAuthor());
+        TextView dateTextView = (TextView) findViewById(R.id.reader_date);
+        dateTextView.setText(NewsRow.get(news).getDate());
+        bodyTextView = (TextView) findViewById(R.id.reader_body);
+        //the links in the body can be opened
+        bodyTextView.setMovementMethod(LinkMovementMethod.getInstance());
+        loadingIndicator = (ProgressBar) findViewById(R.id.reader_loading);
+        //this opens the whole page, with pictures and videos, in the browser
+        browserButton = (Button) findViewById(R.id.reader_open_browser);
+        browserButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                openInBrowser();
+            }
+        });
+        browserButton.setVisibility(news.getWebUrl() == null || news.getWebUrl().isEmpty() ? View.GONE : View.VISIBLE);
+        reader = ArticleReader.getInstance(this);
+        //a body already prepared is shown before the first frame
+        reader.load(news, this);
+    }
+
+    @Override
+    public void onBodyLoaded(NewsList loaded, CharSequence body) {
+        loadingIndicator.setVisibility(View.GONE);
+        if (body == null || body.length() == 0) {
+            //without the body, the short description is shown
+            bodyTextView.setText(NewsRow.get(news).getTrailText());
+            TextView emptyTextView = (TextView) findViewById(R.id.reader_empty);
+            emptyTextView.setVisibility(View.VISIBLE);
+        } else {
+            bodyTextView.setText(body);
+        }
+        long openedAt = getIntent().getLongExtra(EXTRA_OPENED_AT, 0);
+        if (openedAt != 0) {
+            Metrics.recordSince(Metrics.READER, openedAt);
+            getIntent().removeExtra(EXTRA_OPENED_AT);
+        }
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        //the body still loading is not given to a closed reader
+        reader.cancel(news, this);
+    }
+
+    //load the link of the news in the Browser
+    private void openInBrowser() {
+        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(news.getWebUrl()));
+        if (intent.resolveActivity(getPackageManager()) != null) {
+            startActivity(intent);
+        }
+    }
+}
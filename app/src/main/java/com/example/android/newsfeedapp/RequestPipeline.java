@@ -0,0 +1,189 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v4.os.CancellationSignal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pipeline of the requests to The Guardian API made by {@link NewsLoader} and {@link NewsPager}.
+ * The requests for the same canonical URL made while one is already running share its network call.
+ * Every caller can give up waiting with its own signal: when nobody is waiting anymore, the network
+ * call is aborted and the parsing of its response stops.
+ * The callers that want the news while the response is parsed get them in batches, also when they join
+ * a request already running.
+ */
+public final class RequestPipeline {
+    //the requests are made on these threads, so the callers can stop waiting at any time
+    private static final ExecutorService sExecutor = Executors.newCachedThreadPool();
+    //the requests running, by canonical URL
+    private static final Map<String, Request> sInFlight = new HashMap<>();
+
+    //this have a private constructor because no one should create an instance of this class.
+    private RequestPipeline() {
+    }
+
+    /**
+     * Return the result of the request, joining the same request if it is already running.
+     * Its status is CANCELED if the signal is canceled (or the thread interrupted) before the page is ready.
+     */
+    public static FetchResult fetch(String requestUrl, CancellationSignal signal) {
+        return fetch(requestUrl, signal, RateLimiter.Priority.INTERACTIVE, null);
+    }
+
+    /**
+     * As {@link #fetch(String, CancellationSignal)}, and the listener (if any) gets the news parsed
+     * while the response is still downloading. A caller that joins a running request gets at once the news
+     * already parsed. The listener is called on a background thread, and never after this method returns.
+     * A request running with a lower priority is not joined, because it could be postponed or dropped
+     * by the {@link RateLimiter}: a new one is sent with the higher priority.
+     */
+    public static FetchResult fetch(String requestUrl, CancellationSignal signal, RateLimiter.Priority priority,
+                                    QueryUtils.ProgressListener listener) {
+        String key = HttpCache.canonicalUrl(requestUrl);
+        Request request;
+        synchronized (sInFlight) {
+            request = sInFlight.get(key);
+            if (request == null || request.mPriority.compareTo(priority) > 0) {
+                // the request of lower priority goes on for its own callers
+                request = new Request(requestUrl, key, priority);
+                sInFlight.put(key, request);
+                sExecutor.execute(request);
+            }
+            request.mWaiters++;
+        }
+        if (listener != null) {
+            request.addListener(listener);
+        }
+        try {
+            return request.await(signal);
+        } finally {
+            if (listener != null) {
+                request.removeListener(listener);
+            }
+            synchronized (sInFlight) {
+                request.mWaiters--;
+                // nobody needs the result anymore, so the network call is aborted
+                if (request.mWaiters == 0 && !request.isDone()) {
+                    request.mSignal.cancel();
+                    if (sInFlight.get(key) == request) {
+                        sInFlight.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A network call shared by all the callers asking for the same URL.
+     */
+    private static class Request implements Runnable, QueryUtils.ProgressListener {
+        private final String mUrl;
+        private final String mKey;
+        private final RateLimiter.Priority mPriority;
+        private final CancellationSignal mSignal = new CancellationSignal();
+        //number of callers waiting for the result, guarded by sInFlight
+        private int mWaiters;
+        private boolean mDone;
+        private FetchResult mResult;
+        //the callers that want the news while they are parsed, and the last news parsed, guarded by this
+        private final List<QueryUtils.ProgressListener> mListeners = new ArrayList<>();
+        private List<NewsList> mParsed;
+
+        Request(String url, String key, RateLimiter.Priority priority) {
+            mUrl = url;
+            mKey = key;
+            mPriority = priority;
+        }
+
+        @Override
+        public void run() {
+            FetchResult result = new FetchResult(FetchResult.Status.CANCELED, 0);
+            try {
+                result = QueryUtils.fetch(mUrl, mSignal, mPriority, this);
+            } finally {
+                synchronized (sInFlight) {
+                    if (sInFlight.get(mKey) == this) {
+                        sInFlight.remove(mKey);
+                    }
+                }
+                synchronized (this) {
+                    mResult = result;
+                    mDone = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized boolean isDone() {
+            return mDone;
+        }
+
+        /**
+         * Called by the parser with the news read until now, they are given to every caller waiting for them.
+         */
+        @Override
+        public void onNewsParsed(List<NewsList> news) {
+            List<QueryUtils.ProgressListener> listeners;
+            synchronized (this) {
+                mParsed = news;
+                listeners = new ArrayList<>(mListeners);
+            }
+            //the listeners are called outside the lock, so they can take their time
+            for (QueryUtils.ProgressListener listener : listeners) {
+                listener.onNewsParsed(new ArrayList<>(news));
+            }
+        }
+
+        void addListener(QueryUtils.ProgressListener listener) {
+            List<NewsList> parsed;
+            synchronized (this) {
+                mListeners.add(listener);
+                parsed = mDone ? null : mParsed;
+            }
+            if (parsed != null) {
+                listener.onNewsParsed(new ArrayList<>(parsed));
+            }
+        }
+
+        synchronized void removeListener(QueryUtils.ProgressListener listener) {
+            mListeners.remove(listener);
+        }
+
+        /**
+         * Wait for the result, until the signal is canceled.
+         */
+        FetchResult await(CancellationSignal signal) {
+            if (signal != null) {
+                signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        synchronized (Request.this) {
+                            Request.this.notifyAll();
+                        }
+                    }
+                });
+            }
+            try {
+                synchronized (this) {
+                    while (!mDone && (signal == null || !signal.isCanceled())) {
+                        wait();
+                    }
+                    // every caller gets its own copy of the page
+                    return mDone ? mResult.copy() : new FetchResult(FetchResult.Status.CANCELED, 0);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new FetchResult(FetchResult.Status.CANCELED, 0);
+            } finally {
+                if (signal != null) {
+                    signal.setOnCancelListener(null);
+                }
+            }
+        }
+    }
+}
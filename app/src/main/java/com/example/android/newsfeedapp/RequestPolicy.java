@@ -0,0 +1,355 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v4.os.CancellationSignal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the requests to The Guardian API are sent on an unreliable network.
+ * The timeouts follow the round trip time measured on the last requests, like the retransmission timeout
+ * of TCP, so a dead connection is given up in a few seconds instead of 25. The requests that fail are sent
+ * again after a random delay that doubles at every attempt. When a request takes longer than 95% of the
+ * last ones, a second identical request is sent and the first one that answers is used.
+ */
+public final class RequestPolicy {
+    //max number of times a request is sent, the first one included
+    public static final int MAX_ATTEMPTS = 3;
+    //timeouts used before the first round trip has been measured, and their limits
+    private static final long DEFAULT_CONNECT_TIMEOUT = 15000; /* milliseconds */
+    private static final long DEFAULT_READ_TIMEOUT = 10000; /* milliseconds */
+    private static final long MIN_CONNECT_TIMEOUT = 2000; /* milliseconds */
+    private static final long MIN_READ_TIMEOUT = 3000; /* milliseconds */
+    //delay before the first retry, and max delay between two attempts
+    private static final long BASE_BACKOFF = 500; /* milliseconds */
+    private static final long MAX_BACKOFF = 8000; /* milliseconds */
+    //number of round trips kept to find the 95th percentile, and how many are needed before hedging
+    private static final int MAX_SAMPLES = 64;
+    private static final int MIN_HEDGE_SAMPLES = 16;
+    //a request is never hedged before this time, so a fast network does not get twice the requests
+    private static final long MIN_HEDGE_DELAY = 300; /* milliseconds */
+
+    //the hedged requests run on these threads, while the caller waits for the first answer
+    private static final ExecutorService sExecutor = Executors.newCachedThreadPool();
+    private static final Random sRandom = new Random();
+    //smoothed round trip time and its variation, in milliseconds, -1 until the first one is measured
+    private static long sSmoothedRtt = -1;
+    private static long sRttVariation;
+    //the last round trips, in a ring buffer
+    private static final long[] sSamples = new long[MAX_SAMPLES];
+    private static int sSampleCount;
+    private static volatile boolean sHedgingEnabled = true;
+
+    //this have a private constructor because no one should create an instance of this class.
+    private RequestPolicy() {
+    }
+
+    /**
+     * Enable or disable the second request sent when the first one is slow, it uses more data.
+     */
+    public static void setHedgingEnabled(boolean enabled) {
+        sHedgingEnabled = enabled;
+    }
+
+    /**
+     * Add the time from the start of a request to its response headers, connection included.
+     * The smoothing is the one of TCP (RFC 6298): 1/8 of the new value, 1/4 of the new variation.
+     */
+    public static synchronized void recordRtt(long rttMs) {
+        if (sSmoothedRtt < 0) {
+            sSmoothedRtt = rttMs;
+            sRttVariation = rttMs / 2;
+        } else {
+            sRttVariation = (3 * sRttVariation + Math.abs(sSmoothedRtt - rttMs)) / 4;
+            sSmoothedRtt = (7 * sSmoothedRtt + rttMs) / 8;
+        }
+        sSamples[sSampleCount % MAX_SAMPLES] = rttMs;
+        sSampleCount++;
+    }
+
+    /**
+     * Forget the round trips measured, for example when the network changes.
+     */
+    public static synchronized void reset() {
+        sSmoothedRtt = -1;
+        sRttVariation = 0;
+        sSampleCount = 0;
+    }
+
+    //the time after which an answer is not expected anymore
+    private static synchronized long retransmissionTimeout() {
+        return sSmoothedRtt < 0 ? -1 : sSmoothedRtt + 4 * sRttVariation;
+    }
+
+    /**
+     * Return the connect timeout of the next request, in milliseconds.
+     */
+    public static long getConnectTimeout() {
+        long timeout = retransmissionTimeout();
+        return timeout < 0 ? DEFAULT_CONNECT_TIMEOUT : clamp(timeout, MIN_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Return the read timeout of the next request, in milliseconds: the longest wait for the next bytes.
+     */
+    public static long getReadTimeout() {
+        long timeout = retransmissionTimeout();
+        return timeout < 0 ? DEFAULT_READ_TIMEOUT : clamp(timeout, MIN_READ_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Return how long to wait for the answer before sending a hedged request, or -1 not to send it.
+     */
+    public static synchronized long getHedgeDelay() {
+        if (!sHedgingEnabled || sSampleCount < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(sSamples, Math.min(sSampleCount, MAX_SAMPLES));
+        Arrays.sort(sorted);
+        //nearest-rank 95th percentile
+        long p95 = sorted[Math.max(0, (int) Math.ceil(0.95 * sorted.length) - 1)];
+        return Math.max(MIN_HEDGE_DELAY, p95);
+    }
+
+    /**
+     * Return a random delay before the given retry, from 0 to twice the previous max ("full jitter"),
+     * so the clients that failed together do not retry together.
+     *
+     * @param retry number of the retry, starting from 1
+     */
+    public static long getBackoffDelay(int retry) {
+        long max = Math.min(MAX_BACKOFF, BASE_BACKOFF << Math.min(retry - 1, 16));
+        synchronized (sRandom) {
+            return (long) (sRandom.nextDouble() * max);
+        }
+    }
+
+    /**
+     * Return true if a request that ended this way can be sent again: the GET requests do not change
+     * anything on the server, but an error of the request itself (like 400 or 404) would come back the same.
+     */
+    public static boolean isRetryable(FetchResult result) {
+        switch (result.getStatus()) {
+            case PARTIAL:
+            case TIMEOUT:
+            case NETWORK_ERROR:
+                return true;
+            case HTTP_ERROR:
+                int code = result.getCode();
+                return code == HttpURLConnection.HTTP_CLIENT_TIMEOUT || code == 429 || code >= 500;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Wait before the next attempt, return false if the signal is canceled (or the thread interrupted) meanwhile.
+     */
+    public static boolean sleep(long delayMs, CancellationSignal signal) {
+        final Object lock = new Object();
+        if (signal != null) {
+            signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    synchronized (lock) {
+                        lock.notifyAll();
+                    }
+                }
+            });
+        }
+        try {
+            long end = System.currentTimeMillis() + delayMs;
+            synchronized (lock) {
+                long left = delayMs;
+                while (left > 0 && (signal == null || !signal.isCanceled())) {
+                    lock.wait(left);
+                    left = end - System.currentTimeMillis();
+                }
+            }
+            return signal == null || !signal.isCanceled();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+        }
+    }
+
+    /**
+     * Send a GET request with the timeouts of the policy and return its response, measuring its round trip.
+     * If the answer takes longer than the hedge delay, the same request is sent again and the response
+     * that comes first is returned, the other request is aborted.
+     * The caller has already taken a token of the {@link RateLimiter} for the first request, the second one
+     * takes its own token with the same priority, and it is not sent if there is none. Every response
+     * received is given to the RateLimiter.
+     * The signal aborts the requests, and also the reading of the body of the response returned:
+     * the caller has to remove its listener when the body has been read.
+     */
+    public static HttpTransport.Response execute(HttpTransport transport, String url, Map<String, String> headers,
+                                                 RateLimiter.Priority priority, CancellationSignal signal) throws IOException {
+        long hedgeDelay = getHedgeDelay();
+        if (hedgeDelay < 0) {
+            long start = System.nanoTime();
+            HttpTransport.Response response = transport.get(url, headers, getConnectTimeout(), getReadTimeout(), signal);
+            recordRtt((System.nanoTime() - start) / 1000000);
+            RateLimiter.onResponse(response);
+            return response;
+        }
+        return new HedgedCall(transport, url, headers, priority).execute(hedgeDelay, signal);
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * A request sent up to two times, the first response is used and the other one is closed.
+     */
+    private static class HedgedCall {
+        private final HttpTransport mTransport;
+        private final String mUrl;
+        private final Map<String, String> mHeaders;
+        private final RateLimiter.Priority mPriority;
+        //each request has its own signal, so the slower one can be aborted alone
+        private final List<CancellationSignal> mSignals = new ArrayList<>();
+        //the requests sent, in the same order of their signals
+        private final List<Future<HttpTransport.Response>> mFutures = new ArrayList<>();
+        //the first response received, and true when the caller has stopped waiting (both guarded by mSignals)
+        private HttpTransport.Response mWinner;
+        private boolean mAbandoned;
+        private final CompletionService<HttpTransport.Response> mCompletion = new ExecutorCompletionService<>(sExecutor);
+
+        HedgedCall(HttpTransport transport, String url, Map<String, String> headers, RateLimiter.Priority priority) {
+            mTransport = transport;
+            mUrl = url;
+            mHeaders = headers;
+            mPriority = priority;
+        }
+
+        HttpTransport.Response execute(long hedgeDelay, CancellationSignal signal) throws IOException {
+            if (signal != null) {
+                signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        cancelAll();
+                    }
+                });
+            }
+            int running = 1;
+            send();
+            IOException failure = null;
+            try {
+                Future<HttpTransport.Response> done = mCompletion.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+                //the second request uses the quota too, it is sent only if there is a token right away
+                if (done == null && (signal == null || !signal.isCanceled()) && RateLimiter.tryAcquire(mPriority)) {
+                    //the first request is slower than usual, the second one could be luckier
+                    send();
+                    running++;
+                }
+                while (running > 0) {
+                    if (done == null) {
+                        done = mCompletion.take();
+                    }
+                    running--;
+                    try {
+                        HttpTransport.Response response = done.get();
+                        if (response != null) {
+                            //the other request is not needed anymore
+                            cancelOthers(done);
+                            return response;
+                        }
+                    } catch (ExecutionException e) {
+                        failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                    }
+                    done = null;
+                }
+            } catch (InterruptedException e) {
+                cancelAll();
+                abandon();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request interrupted");
+            }
+            throw failure != null ? failure : new IOException("No response");
+        }
+
+        private void send() {
+            final CancellationSignal requestSignal = new CancellationSignal();
+            synchronized (mSignals) {
+                mSignals.add(requestSignal);
+            }
+            mFutures.add(mCompletion.submit(new Callable<HttpTransport.Response>() {
+                @Override
+                public HttpTransport.Response call() throws IOException {
+                    long start = System.nanoTime();
+                    HttpTransport.Response response = mTransport.get(mUrl, mHeaders, getConnectTimeout(), getReadTimeout(), requestSignal);
+                    recordRtt((System.nanoTime() - start) / 1000000);
+                    //also the response that is not used tells the limits of the key
+                    RateLimiter.onResponse(response);
+                    //only the first response is used, a later one (or one nobody waits for) gives back its connection
+                    synchronized (mSignals) {
+                        if (mWinner == null && !mAbandoned) {
+                            mWinner = response;
+                            return response;
+                        }
+                    }
+                    response.close();
+                    return null;
+                }
+            }));
+        }
+
+        private void cancelOthers(Future<HttpTransport.Response> winner) {
+            int index = mFutures.indexOf(winner);
+            synchronized (mSignals) {
+                for (int i = 0; i < mSignals.size(); i++) {
+                    if (i != index) {
+                        mSignals.get(i).cancel();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Called when the caller stops waiting: a response already received would stay in its Future,
+         * never read, so it is closed here and its connection goes back to the pool.
+         */
+        private void abandon() {
+            HttpTransport.Response winner;
+            synchronized (mSignals) {
+                mAbandoned = true;
+                winner = mWinner;
+            }
+            if (winner != null) {
+                try {
+                    winner.close();
+                } catch (IOException e) {
+                    //the request is given up anyway, the connection is dropped
+                }
+            }
+        }
+
+        private void cancelAll() {
+            synchronized (mSignals) {
+                for (CancellationSignal requestSignal : mSignals) {
+                    requestSignal.cancel();
+                }
+            }
+        }
+    }
+}
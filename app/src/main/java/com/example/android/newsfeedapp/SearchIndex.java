@@ -0,0 +1,212 @@
+package com.example.android.newsfeedapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index of the news loaded, used to filter the list while the user types.
+ * Title, short description, section and author are split in words; a search finds the news that
+ * have, for every word typed, a word starting with it, ranked by where the words are found.
+ */
+public final class SearchIndex {
+    //max number of news in the index, the oldest added are removed first
+    private static final int MAX_NEWS = 2000;
+    //weight of a word found in each field
+    private static final int TITLE_WEIGHT = 4;
+    private static final int SECTION_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int TRAIL_TEXT_WEIGHT = 1;
+    //a word typed completely counts more than a word that is only the start of another one
+    private static final int EXACT_MATCH_BONUS = 2;
+
+    //news by key, in the order they have been added
+    private static final LinkedHashMap<String, NewsList> sNews = new LinkedHashMap<>();
+    //for each word, the news containing it with the sum of the weights of the fields where it is found
+    private static final TreeMap<String, Map<String, Integer>> sPostings = new TreeMap<>();
+
+    //this have a private constructor because no one should create an instance of this class.
+    private SearchIndex() {
+    }
+
+    /**
+     * Add the news to the index, replacing the ones already indexed with the same key.
+     */
+    public static synchronized void addAll(List<NewsList> news) {
+        if (news == null) {
+            return;
+        }
+        for (NewsList item : news) {
+            add(item);
+        }
+        // the oldest news are removed when the index is full
+        Iterator<String> keys = sNews.keySet().iterator();
+        while (sNews.size() > MAX_NEWS && keys.hasNext()) {
+            String key = keys.next();
+            removePostings(key, sNews.get(key));
+            keys.remove();
+        }
+    }
+
+    /**
+     * Remove all the news from the index.
+     */
+    public static synchronized void clear() {
+        sNews.clear();
+        sPostings.clear();
+    }
+
+    /**
+     * Return the number of news in the index.
+     */
+    public static synchronized int size() {
+        return sNews.size();
+    }
+
+    /**
+     * Return the news matching all the words of the query, the best ones first.
+     *
+     * @param query text typed by the user
+     * @param limit max number of news returned
+     */
+    public static synchronized List<NewsList> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, Integer> scores = null;
+        for (String term : new HashSet<>(terms)) {
+            Map<String, Integer> termScores = new HashMap<>();
+            // all the words starting with the term are between the term and the term followed by the last char
+            SortedMap<String, Map<String, Integer>> matches = sPostings.subMap(term, term + Character.MAX_VALUE);
+            for (Map.Entry<String, Map<String, Integer>> match : matches.entrySet()) {
+                int bonus = match.getKey().equals(term) ? EXACT_MATCH_BONUS : 1;
+                for (Map.Entry<String, Integer> posting : match.getValue().entrySet()) {
+                    Integer score = termScores.get(posting.getKey());
+                    int value = posting.getValue() * bonus;
+                    // a news counts once for each term, with its best word
+                    if (score == null || score < value) {
+                        termScores.put(posting.getKey(), value);
+                    }
+                }
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // only the news matching every term are kept
+                Map<String, Integer> both = new HashMap<>();
+                for (Map.Entry<String, Integer> score : scores.entrySet()) {
+                    Integer termScore = termScores.get(score.getKey());
+                    if (termScore != null) {
+                        both.put(score.getKey(), score.getValue() + termScore);
+                    }
+                }
+                scores = both;
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        final Map<String, Integer> ranking = scores;
+        List<NewsList> results = new ArrayList<>();
+        for (String key : ranking.keySet()) {
+            results.add(sNews.get(key));
+        }
+        Collections.sort(results, new Comparator<NewsList>() {
+            @Override
+            public int compare(NewsList first, NewsList second) {
+                int byScore = ranking.get(second.getKey()).compareTo(ranking.get(first.getKey()));
+                if (byScore != 0) {
+                    return byScore;
+                }
+                // with the same score the most recent news comes first
+                return NewsList.compareByDate(second, first);
+            }
+        });
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    private static void add(NewsList news) {
+        String key = news.getKey();
+        NewsList previous = sNews.remove(key);
+        if (news.equals(previous)) {
+            // the same news loaded again keeps its words, it only becomes the most recent one
+            sNews.put(key, news);
+            return;
+        }
+        if (previous != null) {
+            removePostings(key, previous);
+        }
+        sNews.put(key, news);
+        for (Map.Entry<String, Integer> word : weights(news).entrySet()) {
+            Map<String, Integer> postings = sPostings.get(word.getKey());
+            if (postings == null) {
+                postings = new HashMap<>();
+                sPostings.put(word.getKey(), postings);
+            }
+            postings.put(key, word.getValue());
+        }
+    }
+
+    private static void removePostings(String key, NewsList news) {
+        for (String word : weights(news).keySet()) {
+            Map<String, Integer> postings = sPostings.get(word);
+            if (postings != null) {
+                postings.remove(key);
+                if (postings.isEmpty()) {
+                    sPostings.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the words of the news, each with the sum of the weights of the fields where it is found.
+     */
+    private static Map<String, Integer> weights(NewsList news) {
+        Map<String, Integer> weights = new HashMap<>();
+        addWeights(weights, news.getWebTitle(), TITLE_WEIGHT);
+        addWeights(weights, news.getSectionName(), SECTION_WEIGHT);
+        addWeights(weights, news.getAuthor(), AUTHOR_WEIGHT);
+        addWeights(weights, NewsFormatter.stripHtml(news.getTrailText()), TRAIL_TEXT_WEIGHT);
+        return weights;
+    }
+
+    private static void addWeights(Map<String, Integer> weights, String text, int weight) {
+        for (String word : new HashSet<>(tokenize(text))) {
+            Integer current = weights.get(word);
+            weights.put(word, current == null ? weight : current + weight);
+        }
+    }
+
+    /**
+     * Split the text in lower case words made of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lowerCase = text.toLowerCase(Locale.getDefault());
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean isWordChar = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -3,10 +3,16 @@ package com.example.android.newsfeedapp;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 public class SettingsActivity extends AppCompatActivity {
     @Override
@@ -15,10 +21,19 @@ public class SettingsActivity extends AppCompatActivity {
         setContentView(R.layout.settings_activity);
     }
 
+    //the list is not created again when going back, it has already applied the preferences changed
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
     public static class NewsPreferenceFragment extends PreferenceFragment implements Preference.OnPreferenceChangeListener {
         @Override
         public void onCreate(Bundle savedInstanceState) {
             super.onCreate(savedInstanceState);
+            //the section chosen in the old versions of the app is moved to the sections before they are shown
+            QueryUtils.getSections(getActivity());
             addPreferencesFromResource(R.xml.settings_main);
             //this find the preference and use bindPreferenceSummaryToValue to set and read the preference for "Max Results"
             Preference maxResult = findPreference(getString(R.string.settings_max_results_key));
@@ -27,7 +42,7 @@ public class SettingsActivity extends AppCompatActivity {
             Preference orderBy = findPreference(getString(R.string.settings_order_by_key));
             bindPreferenceSummaryToValue(orderBy);
             //this find the preference and use bindPreferenceSummaryToValue to set and read the preference for "Sections"
-            Preference section = findPreference(getString(R.string.settings_section_key));
+            Preference section = findPreference(getString(R.string.settings_sections_key));
             bindPreferenceSummaryToValue(section);
         }
 
@@ -35,7 +50,19 @@ public class SettingsActivity extends AppCompatActivity {
         @Override
         public boolean onPreferenceChange(Preference preference, Object value) {
             String stringValue = value.toString();
-            if (preference instanceof ListPreference) {
+            if (preference instanceof MultiSelectListPreference) {
+                //the summary lists the labels of the sections chosen, in the order of the settings
+                MultiSelectListPreference multiPreference = (MultiSelectListPreference) preference;
+                Set<?> values = (Set<?>) value;
+                CharSequence[] entryValues = multiPreference.getEntryValues();
+                List<CharSequence> labels = new ArrayList<>();
+                for (int i = 0; i < entryValues.length; i++) {
+                    if (values.contains(entryValues[i].toString())) {
+                        labels.add(multiPreference.getEntries()[i]);
+                    }
+                }
+                preference.setSummary(TextUtils.join(", ", labels));
+            } else if (preference instanceof ListPreference) {
                 ListPreference listPreference = (ListPreference) preference;
                 int prefIndex = listPreference.findIndexOfValue(stringValue);
                 if (prefIndex >= 0) {
@@ -52,6 +79,10 @@ public class SettingsActivity extends AppCompatActivity {
         private void bindPreferenceSummaryToValue(Preference preference) {
             preference.setOnPreferenceChangeListener(this);
             SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(preference.getContext());
+            if (preference instanceof MultiSelectListPreference) {
+                onPreferenceChange(preference, ((MultiSelectListPreference) preference).getValues());
+                return;
+            }
             String preferenceString = preferences.getString(preference.getKey(), "");
             onPreferenceChange(preference, preferenceString);
         }
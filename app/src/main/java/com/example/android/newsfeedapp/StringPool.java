@@ -0,0 +1,42 @@
+package com.example.android.newsfeedapp;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Shared copies of the values repeated in many news, like the names of the sections and of the authors,
+ * so the thousands of news kept in the pages, in the caches and in the index use one String for each value.
+ * A value is released by the garbage collector when no news uses it anymore.
+ */
+public final class StringPool {
+    //the keys are weak, and the values point to the key itself, so the map does not keep them
+    private static final Map<String, WeakReference<String>> sValues = new WeakHashMap<>();
+
+    //this have a private constructor because no one should create an instance of this class.
+    private StringPool() {
+    }
+
+    /**
+     * Return the shared String equal to the value, the value itself the first time it is seen.
+     */
+    public static synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<String> reference = sValues.get(value);
+        String shared = reference == null ? null : reference.get();
+        if (shared == null) {
+            sValues.put(value, new WeakReference<>(value));
+            shared = value;
+        }
+        return shared;
+    }
+
+    /**
+     * Return the number of values in the pool.
+     */
+    public static synchronized int size() {
+        return sValues.size();
+    }
+}
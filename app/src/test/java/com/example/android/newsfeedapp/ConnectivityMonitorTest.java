@@ -0,0 +1,76 @@
+package com.example.android.newsfeedapp;
+
+import android.net.ConnectivityManager;
+import android.telephony.TelephonyManager;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of how {@link ConnectivityMonitor} classifies the links and of the key of the lists cached for them.
+ */
+public class ConnectivityMonitorTest {
+    private static final int UNKNOWN_BANDWIDTH = Integer.MAX_VALUE;
+
+    @Test
+    public void classify_wifiWithoutDataPlan_isUnmetered() {
+        assertEquals(ConnectivityMonitor.LinkType.UNMETERED,
+                ConnectivityMonitor.classify(true, false, ConnectivityManager.TYPE_WIFI, 0, UNKNOWN_BANDWIDTH));
+        assertEquals(ConnectivityMonitor.LinkType.METERED,
+                ConnectivityMonitor.classify(true, true, ConnectivityManager.TYPE_WIFI, 0, UNKNOWN_BANDWIDTH));
+    }
+
+    @Test
+    public void classify_mobile_isMeteredOrSlow() {
+        assertEquals(ConnectivityMonitor.LinkType.METERED, ConnectivityMonitor.classify(true, true,
+                ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_LTE, UNKNOWN_BANDWIDTH));
+        assertEquals(ConnectivityMonitor.LinkType.SLOW, ConnectivityMonitor.classify(true, true,
+                ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_EDGE, UNKNOWN_BANDWIDTH));
+        //a fast type with a low bandwidth is slow
+        assertEquals(ConnectivityMonitor.LinkType.SLOW,
+                ConnectivityMonitor.classify(true, false, ConnectivityManager.TYPE_WIFI, 0, 150));
+    }
+
+    @Test
+    public void classify_notConnected_isOffline() {
+        assertEquals(ConnectivityMonitor.LinkType.OFFLINE,
+                ConnectivityMonitor.classify(false, false, ConnectivityManager.TYPE_WIFI, 0, UNKNOWN_BANDWIDTH));
+    }
+
+    @Test
+    public void cacheKey_ignoresFields() {
+        String full = "https://content.guardianapis.com/search?q=a&show-fields=all&page-size=10";
+        String light = "https://content.guardianapis.com/search?page-size=10&q=a&show-fields=trailText,thumbnail";
+        assertEquals(NewsCache.cacheKey(full), NewsCache.cacheKey(light));
+        assertEquals(HttpCache.canonicalUrl("https://content.guardianapis.com/search?q=a"), NewsCache.cacheKey(light));
+    }
+
+    @Test
+    public void cacheKey_ignoresPageSizeOfFirstPage() {
+        //the offline profile and the prefetch ask the size of the settings, the mobile profiles a smaller one
+        String full = "https://content.guardianapis.com/search?q=a&show-fields=all&page-size=20";
+        String light = "https://content.guardianapis.com/search?page-size=10&q=a&show-fields=trailText,thumbnail";
+        String minimal = "https://content.guardianapis.com/search?page-size=5&q=a&page=1";
+        assertEquals(NewsCache.cacheKey(full), NewsCache.cacheKey(light));
+        assertEquals(NewsCache.cacheKey(full), NewsCache.cacheKey(minimal));
+        //the second page of another size holds other news
+        assertNotEquals(NewsCache.cacheKey(full + "&page=2"), NewsCache.cacheKey(light + "&page=2"));
+    }
+
+    @Test
+    public void trim_keepsThePageAsked() {
+        List<NewsList> news = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            news.add(new NewsList("id" + i, "Title", "Sport", "2017-07-15T21:30:35Z", "https://www.theguardian.com/" + i,
+                    "Author", "Trail text"));
+        }
+        List<NewsList> light = NewsCache.trim(news, "https://content.guardianapis.com/search?page-size=10&q=a");
+        assertEquals(news.subList(0, 10), light);
+        assertEquals(news, NewsCache.trim(news, "https://content.guardianapis.com/search?page-size=40&q=a"));
+        assertEquals(news, NewsCache.trim(news, "https://content.guardianapis.com/search?q=a"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the merge of the sections in {@link FeedFetcher}.
+ */
+public class FeedFetcherTest {
+    private static NewsList news(String id, String date) {
+        return new NewsList(id, "Title " + id, "Section", date, "https://www.theguardian.com/" + id, "", "");
+    }
+
+    private final NewsList first = news("sport/1", "2017-08-01T10:00:00Z");
+    private final NewsList second = news("politics/2", "2017-08-02T10:00:00Z");
+    private final NewsList third = news("sport/3", "2017-08-03T10:00:00Z");
+
+    @Test
+    public void merge_sortsByDate() throws Exception {
+        List<NewsList> feed = FeedFetcher.merge(new ArrayList<NewsList>(), Arrays.asList(third, first), false);
+        feed = FeedFetcher.merge(feed, Arrays.asList(second), false);
+        assertEquals(Arrays.asList(third, second, first), feed);
+        assertEquals(Arrays.asList(first, second, third),
+                FeedFetcher.merge(Arrays.asList(third, first), Arrays.asList(second), true));
+    }
+
+    @Test
+    public void merge_dropsNewsAlreadyInTheFeed() throws Exception {
+        NewsList sameAsSecond = news("politics/2", "2017-08-02T10:00:00Z");
+        List<NewsList> feed = FeedFetcher.merge(Arrays.asList(second, first), Arrays.asList(sameAsSecond, third), false);
+        assertEquals(Arrays.asList(third, second, first), feed);
+        assertSame(second, feed.get(1));
+    }
+}
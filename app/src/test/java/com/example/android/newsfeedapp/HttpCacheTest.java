@@ -0,0 +1,43 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the {@link HttpCache} helpers.
+ */
+public class HttpCacheTest {
+    @Test
+    public void canonicalUrl_sortsQueryParameters() throws Exception {
+        String first = "https://Content.GuardianApis.com/search?page-size=20&q=brexit&order-by=newest&api-key=test";
+        String second = "https://content.guardianapis.com/search?api-key=test&order-by=newest&q=brexit&page-size=20#top";
+        assertEquals(HttpCache.canonicalUrl(first), HttpCache.canonicalUrl(second));
+        assertEquals("https://content.guardianapis.com/search?api-key=test&order-by=newest&page-size=20&q=brexit",
+                HttpCache.canonicalUrl(first));
+    }
+
+    @Test
+    public void canonicalUrl_keepsOrderOfRepeatedParameters() throws Exception {
+        assertEquals("https://content.guardianapis.com/search?page-size=20&page-size=10",
+                HttpCache.canonicalUrl("https://content.guardianapis.com/search?page-size=20&page-size=10"));
+    }
+
+    @Test
+    public void freshnessLifetime_readsMaxAgeAndAge() throws Exception {
+        assertEquals(60, HttpCache.freshnessLifetime("public, max-age=60", null));
+        assertEquals(45, HttpCache.freshnessLifetime("max-age=60", "15"));
+        assertEquals(0, HttpCache.freshnessLifetime("max-age=60", "90"));
+        assertEquals(0, HttpCache.freshnessLifetime("no-cache, max-age=60", null));
+        assertEquals(0, HttpCache.freshnessLifetime(null, null));
+    }
+
+    @Test
+    public void entry_isFreshUntilExpiration() throws Exception {
+        HttpCache.Entry entry = new HttpCache.Entry("\"abc\"", null, 1000, new NewsPage());
+        assertTrue(entry.isFresh(999));
+        assertFalse(entry.isFresh(1000));
+        assertTrue(entry.hasValidators());
+        assertEquals(5000, entry.withExpiresAt(5000).getExpiresAt());
+    }
+}
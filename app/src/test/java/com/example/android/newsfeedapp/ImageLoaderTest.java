@@ -0,0 +1,22 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the size the thumbnails are decoded at.
+ */
+public class ImageLoaderTest {
+    @Test
+    public void inSampleSize_keepsBothSidesBigEnough() throws Exception {
+        //the usual picture of the API for a row of 288x216 pixels
+        assertEquals(1, ImageLoader.calculateInSampleSize(500, 300, 288, 216));
+        assertEquals(4, ImageLoader.calculateInSampleSize(1000, 600, 144, 108));
+        //the smaller side decides
+        assertEquals(2, ImageLoader.calculateInSampleSize(4000, 500, 100, 200));
+        //a picture smaller than the row is never enlarged
+        assertEquals(1, ImageLoader.calculateInSampleSize(50, 40, 288, 216));
+        assertEquals(1, ImageLoader.calculateInSampleSize(500, 300, 0, 0));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the helpers of {@link LocalQuery}.
+ */
+public class LocalQueryTest {
+    @Test
+    public void isDateOrder_relevanceOnlyWithoutQuery() throws Exception {
+        assertTrue(LocalQuery.isDateOrder("newest", "brexit"));
+        assertTrue(LocalQuery.isDateOrder("oldest", null));
+        assertTrue(LocalQuery.isDateOrder("relevance", ""));
+        assertFalse(LocalQuery.isDateOrder("relevance", "brexit"));
+        assertFalse(LocalQuery.isDateOrder(null, null));
+    }
+
+    @Test
+    public void replaceParameter_changesOnlyThatParameter() throws Exception {
+        String url = "https://content.guardianapis.com/search?page-size=20&order-by=newest&section=sport";
+        assertEquals("https://content.guardianapis.com/search?page-size=20&order-by=oldest&section=sport",
+                LocalQuery.replaceParameter(url, "order-by", "oldest"));
+        assertEquals(url, LocalQuery.replaceParameter(url, "q", "brexit"));
+        assertEquals("https://content.guardianapis.com/search",
+                LocalQuery.replaceParameter("https://content.guardianapis.com/search", "order-by", "oldest"));
+    }
+}
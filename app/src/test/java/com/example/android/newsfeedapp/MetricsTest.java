@@ -0,0 +1,44 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the percentiles computed by {@link Metrics}.
+ */
+public class MetricsTest {
+    @Before
+    public void setUp() throws Exception {
+        Metrics.clear();
+    }
+
+    @Test
+    public void getSummaries_computesPercentiles() throws Exception {
+        for (int i = 100; i >= 1; i--) {
+            Metrics.record(Metrics.PARSE, i);
+        }
+        List<Metrics.Summary> summaries = Metrics.getSummaries();
+        assertEquals(1, summaries.size());
+        Metrics.Summary parse = summaries.get(0);
+        assertEquals(Metrics.PARSE, parse.getName());
+        assertEquals(100, parse.getCount());
+        assertEquals(50, parse.getP50());
+        assertEquals(95, parse.getP95());
+        assertEquals(99, parse.getP99());
+        assertEquals(100, parse.getMax());
+    }
+
+    @Test
+    public void getSummaries_keepsOnlyTheLastValues() throws Exception {
+        for (int i = 0; i < 2000; i++) {
+            Metrics.record(Metrics.ITEMS, i < 500 ? 1000 : 10);
+        }
+        Metrics.Summary items = Metrics.getSummaries().get(0);
+        assertEquals(2000, items.getCount());
+        assertEquals(10, items.getMax());
+    }
+}
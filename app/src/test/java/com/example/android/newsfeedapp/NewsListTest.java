@@ -0,0 +1,68 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the compact values of {@link NewsList}: the dates kept as numbers and the shared strings.
+ */
+public class NewsListTest {
+    private static NewsList news(String id, String date) {
+        return new NewsList(id, "Title", new String("Politics"), date, "https://www.theguardian.com/" + id,
+                new String("Jane Doe"), "<p>Short description</p>", "");
+    }
+
+    @Test
+    public void isoDate_isTheSameOfSimpleDateFormat() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            //from 1900 to 2100, the dates before 1970 are negative
+            long time = (random.nextLong() % (100L * 365 * 24 * 60 * 60)) * 1000;
+            String date = format.format(new Date(time));
+            assertEquals(date, time, NewsFormatter.parseIsoDate(date));
+            assertEquals(date, NewsFormatter.formatIsoDate(time));
+        }
+        assertEquals(NewsFormatter.NO_DATE, NewsFormatter.parseIsoDate("2017-02-29T10:00:00Z"));
+        assertEquals(NewsFormatter.NO_DATE, NewsFormatter.parseIsoDate("2017-07-15T21:30:35.123Z"));
+        assertEquals(NewsFormatter.NO_DATE, NewsFormatter.parseIsoDate(""));
+    }
+
+    @Test
+    public void values_areTheOnesReceived() throws Exception {
+        NewsList item = news("politics/1", "2017-08-01T10:00:00Z");
+        assertEquals("2017-08-01T10:00:00Z", item.getWebPublicationDate());
+        assertEquals("https://www.theguardian.com/politics/1", item.getWebUrl());
+        assertEquals("<p>Short description</p>", item.getTrailText());
+        assertEquals("", item.getThumbnail());
+        //a date in another format is kept as it is
+        assertEquals("2017-08-01", news("politics/2", "2017-08-01").getWebPublicationDate());
+        assertEquals(news("politics/1", "2017-08-01T10:00:00Z"), item);
+        assertNotEquals(news("politics/1", "2017-08-01T10:00:01Z"), item);
+    }
+
+    @Test
+    public void repeatedValues_areShared() throws Exception {
+        NewsList first = news("politics/1", "2017-08-01T10:00:00Z");
+        NewsList second = news("politics/2", "2017-08-02T10:00:00Z");
+        assertSame(first.getSectionName(), second.getSectionName());
+        assertSame(first.getAuthor(), second.getAuthor());
+    }
+
+    @Test
+    public void compareByDate_oldestFirst() throws Exception {
+        NewsList first = news("politics/1", "2017-08-01T10:00:00Z");
+        NewsList second = news("politics/2", "2017-08-02T09:00:00Z");
+        assertTrue(NewsList.compareByDate(first, second) < 0);
+        assertTrue(NewsList.compareByDate(second, first) > 0);
+        assertEquals(0, NewsList.compareByDate(first, news("politics/3", "2017-08-01T10:00:00Z")));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of what {@link NewsLoader} delivers while a response is parsed.
+ */
+public class NewsLoaderTest {
+    @Test
+    public void shouldDeliver_finalPageAfterLastBatchHoldingIt() throws Exception {
+        for (int pageSize = 10; pageSize <= 40; pageSize += 10) {
+            List<NewsList> page = new ArrayList<>();
+            List<NewsList> lastBatch = null;
+            for (int i = 0; i < pageSize; i++) {
+                page.add(news(i));
+                if (QueryUtils.isProgressBatch(page.size())) {
+                    lastBatch = new ArrayList<>(page);
+                }
+            }
+            //the page size is a multiple of the batch size, so the last batch is the whole page
+            assertEquals(page, lastBatch);
+            assertTrue(NewsLoader.shouldDeliver(page, lastBatch, true, true, false));
+        }
+    }
+
+    @Test
+    public void shouldDeliver_onlyChangedNewsAfterFinalOnes() throws Exception {
+        List<NewsList> news = new ArrayList<>();
+        news.add(news(0));
+        assertFalse(NewsLoader.shouldDeliver(new ArrayList<>(news), news, false, true, true));
+        List<NewsList> more = new ArrayList<>(news);
+        more.add(news(1));
+        assertTrue(NewsLoader.shouldDeliver(more, news, false, true, true));
+        assertTrue(NewsLoader.shouldDeliver(more, null, false, false, false));
+    }
+
+    @Test
+    public void shouldDeliver_sameNewsWhenTheLoadEnds() throws Exception {
+        List<NewsList> news = new ArrayList<>();
+        news.add(news(0));
+        //the cached news are shown, then the network answers that nothing changed
+        assertFalse(NewsLoader.shouldDeliver(new ArrayList<>(news), news, false, false, false));
+        assertTrue(NewsLoader.shouldDeliver(new ArrayList<>(news), news, false, true, false));
+        assertFalse(NewsLoader.shouldDeliver(new ArrayList<>(news), news, false, true, true));
+    }
+
+    private static NewsList news(int index) {
+        return new NewsList("id" + index, "Title " + index, "Sport", "2017-07-15T21:30:35Z",
+                "https://www.theguardian.com/" + index, "Author", "Trail text");
+    }
+}
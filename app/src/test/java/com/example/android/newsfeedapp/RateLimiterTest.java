@@ -0,0 +1,68 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the token bucket of {@link RateLimiter}, with the times given by the test.
+ */
+public class RateLimiterTest {
+    private static final RateLimiter.Priority INTERACTIVE = RateLimiter.Priority.INTERACTIVE;
+    private static final RateLimiter.Priority REFRESH = RateLimiter.Priority.REFRESH;
+    private static final RateLimiter.Priority PREFETCH = RateLimiter.Priority.PREFETCH;
+
+    @Before
+    public void setUp() {
+        RateLimiter.reset();
+    }
+
+    @Test
+    public void tokens_comeBackWithTheRate() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(RateLimiter.tryAcquire(INTERACTIVE, 1000));
+        }
+        assertFalse(RateLimiter.tryAcquire(INTERACTIVE, 1000));
+        //one token per second before the server tells its limits
+        assertTrue(RateLimiter.tryAcquire(INTERACTIVE, 2000));
+    }
+
+    @Test
+    public void lastTokens_areKeptForTheHigherPriorities() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(RateLimiter.tryAcquire(INTERACTIVE, 1000));
+        }
+        //two tokens left: the prefetch keeps two of them, the refresh one
+        assertFalse(RateLimiter.tryAcquire(PREFETCH, 1000));
+        assertTrue(RateLimiter.tryAcquire(REFRESH, 1000));
+        assertFalse(RateLimiter.tryAcquire(REFRESH, 1000));
+        assertTrue(RateLimiter.tryAcquire(INTERACTIVE, 1000));
+    }
+
+    @Test
+    public void headers_adjustTheBucket() throws Exception {
+        //the other users of the key have used the whole minute
+        RateLimiter.update(200, "120", "0", null, null, null, 1000);
+        assertFalse(RateLimiter.tryAcquire(INTERACTIVE, 1000));
+        //two tokens per second
+        assertTrue(RateLimiter.tryAcquire(INTERACTIVE, 1500));
+    }
+
+    @Test
+    public void tooManyRequests_pausesUntilRetryAfter() throws Exception {
+        RateLimiter.update(429, null, null, null, null, "30", 1000);
+        assertFalse(RateLimiter.tryAcquire(INTERACTIVE, 30999));
+        assertTrue(RateLimiter.tryAcquire(INTERACTIVE, 31000));
+    }
+
+    @Test
+    public void endOfTheDay_dropsTheLowerPriorities() throws Exception {
+        RateLimiter.update(200, null, null, "1000", "50", null, 1000);
+        assertFalse(RateLimiter.tryAcquire(PREFETCH, 1000));
+        assertTrue(RateLimiter.tryAcquire(REFRESH, 1000));
+        RateLimiter.update(200, null, null, "1000", "10", null, 1000);
+        assertFalse(RateLimiter.tryAcquire(REFRESH, 1000));
+        assertTrue(RateLimiter.tryAcquire(INTERACTIVE, 1000));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the timeouts, the retries and the hedge delay of {@link RequestPolicy}.
+ */
+public class RequestPolicyTest {
+    @Before
+    public void setUp() {
+        RequestPolicy.reset();
+        RequestPolicy.setHedgingEnabled(true);
+    }
+
+    @Test
+    public void timeouts_followRoundTrips() throws Exception {
+        //before the first round trip the old fixed timeouts are used
+        assertEquals(15000, RequestPolicy.getConnectTimeout());
+        assertEquals(10000, RequestPolicy.getReadTimeout());
+        for (int i = 0; i < 20; i++) {
+            RequestPolicy.recordRtt(100);
+        }
+        //a fast network gets the min timeouts
+        assertEquals(2000, RequestPolicy.getConnectTimeout());
+        assertEquals(3000, RequestPolicy.getReadTimeout());
+        for (int i = 0; i < 20; i++) {
+            RequestPolicy.recordRtt(4000);
+        }
+        assertTrue(RequestPolicy.getConnectTimeout() > 4000);
+    }
+
+    @Test
+    public void hedgeDelay_isThe95thPercentile() throws Exception {
+        //not enough round trips yet
+        RequestPolicy.recordRtt(1000);
+        assertEquals(-1, RequestPolicy.getHedgeDelay());
+        for (int i = 1; i <= 40; i++) {
+            RequestPolicy.recordRtt(i * 100);
+        }
+        //41 values, the 95th percentile is the 39th: 3800 ms
+        assertEquals(3800, RequestPolicy.getHedgeDelay());
+        RequestPolicy.setHedgingEnabled(false);
+        assertEquals(-1, RequestPolicy.getHedgeDelay());
+    }
+
+    @Test
+    public void backoffDelay_hasJitterAndLimit() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(RequestPolicy.getBackoffDelay(1) < 500);
+            assertTrue(RequestPolicy.getBackoffDelay(3) < 2000);
+            assertTrue(RequestPolicy.getBackoffDelay(20) < 8000);
+        }
+    }
+
+    @Test
+    public void isRetryable_onlyTransientFailures() throws Exception {
+        assertTrue(RequestPolicy.isRetryable(new FetchResult(FetchResult.Status.TIMEOUT, 0)));
+        assertTrue(RequestPolicy.isRetryable(new FetchResult(FetchResult.Status.NETWORK_ERROR, 0)));
+        assertTrue(RequestPolicy.isRetryable(new FetchResult(FetchResult.Status.HTTP_ERROR, 503)));
+        assertTrue(RequestPolicy.isRetryable(new FetchResult(FetchResult.Status.HTTP_ERROR, 429)));
+        assertFalse(RequestPolicy.isRetryable(new FetchResult(FetchResult.Status.HTTP_ERROR, 404)));
+        assertFalse(RequestPolicy.isRetryable(new FetchResult(FetchResult.Status.SUCCESS, 200)));
+        assertFalse(RequestPolicy.isRetryable(new FetchResult(FetchResult.Status.CANCELED, 0)));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the {@link SearchIndex} matching and ranking.
+ */
+public class SearchIndexTest {
+    private final NewsList brexitTitle = new NewsList("politics/1", "Brexit talks resume", "Politics",
+            "2017-08-01T10:00:00Z", "https://www.theguardian.com/politics/1", "Jane Doe", "<p>Talks in Brussels</p>");
+    private final NewsList brexitTrail = new NewsList("business/2", "Markets rally", "Business",
+            "2017-08-02T10:00:00Z", "https://www.theguardian.com/business/2", "John Roe", "<strong>After Brexit</strong> news");
+    private final NewsList football = new NewsList("football/3", "Premier League opener", "Football",
+            "2017-08-03T10:00:00Z", "https://www.theguardian.com/football/3", "Jane Smith", "Season starts");
+
+    @Before
+    public void setUp() throws Exception {
+        SearchIndex.clear();
+        SearchIndex.addAll(Arrays.asList(brexitTitle, brexitTrail, football));
+    }
+
+    @Test
+    public void search_ranksTitleBeforeTrailText() throws Exception {
+        assertEquals(Arrays.asList(brexitTitle, brexitTrail), SearchIndex.search("Brexit", 10));
+    }
+
+    @Test
+    public void search_matchesPrefixesOfEveryWord() throws Exception {
+        assertEquals(Arrays.asList(football), SearchIndex.search("prem lea", 10));
+        assertEquals(Arrays.asList(brexitTitle), SearchIndex.search("bre jane", 10));
+        assertTrue(SearchIndex.search("brexit football", 10).isEmpty());
+    }
+
+    @Test
+    public void search_ignoresTagsAndLimitsResults() throws Exception {
+        assertTrue(SearchIndex.search("strong", 10).isEmpty());
+        List<NewsList> jane = SearchIndex.search("jane", 1);
+        // same score, so the most recent news comes first
+        assertEquals(Arrays.asList(football), jane);
+    }
+
+    @Test
+    public void addAll_replacesNewsWithSameKey() throws Exception {
+        NewsList updated = new NewsList("football/3", "Transfer deadline", "Football",
+                "2017-08-04T10:00:00Z", "https://www.theguardian.com/football/3", "Jane Smith", "");
+        SearchIndex.addAll(Arrays.asList(updated));
+        assertEquals(3, SearchIndex.size());
+        assertTrue(SearchIndex.search("premier", 10).isEmpty());
+        assertEquals(Arrays.asList(updated), SearchIndex.search("transfer", 10));
+    }
+}
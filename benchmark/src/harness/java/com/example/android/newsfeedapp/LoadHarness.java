@@ -0,0 +1,219 @@
+package com.example.android.newsfeedapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * End-to-end load of the request path of {@link NewsLoader} against the {@link ReplayServer}: bursts of
+ * searches (a new query every time) and refreshes (the same section pages, revalidated with the ETag)
+ * are sent at the same time through {@link RequestPipeline}, with the real transport, cache and parser.
+ * At the end it prints the throughput, the latency percentiles, the failures and the heap used.
+ * The bandwidth is the one of every connection, in KB/s.
+ * Run it with: ./gradlew :benchmark:loadTest -Pargs="--bursts=10 --burst=64 --errors=0.05"
+ */
+public final class LoadHarness {
+    //the sections refreshed, like the ones chosen in the settings
+    private static final String[] SECTIONS = {"all", "world", "sport", "technology", "business", "culture"};
+    //time between two samples of the heap used
+    private static final long HEAP_SAMPLE_MS = 10;
+
+    //this have a private constructor because no one should create an instance of this class.
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int bursts = Integer.parseInt(option(options, "bursts", "5"));
+        int burst = Integer.parseInt(option(options, "burst", "32"));
+        long pauseMs = Long.parseLong(option(options, "pause", "500"));
+        double refreshRate = Double.parseDouble(option(options, "refresh", "0.5"));
+        int pageSize = Integer.parseInt(option(options, "page-size", "20"));
+        boolean withBodies = Boolean.parseBoolean(option(options, "bodies", "true"));
+        ReplayServer server = new ReplayServer(
+                Long.parseLong(option(options, "latency", "50")),
+                Long.parseLong(option(options, "jitter", "50")),
+                Long.parseLong(option(options, "bandwidth", "0")) * 1024,
+                Double.parseDouble(option(options, "errors", "0.02")),
+                Double.parseDouble(option(options, "truncated", "0.02")));
+        server.start();
+        HeapSampler heapSampler = new HeapSampler();
+        heapSampler.start();
+        ExecutorService executor = Executors.newFixedThreadPool(burst);
+        List<Long> latencies = new ArrayList<>();
+        int failures = 0;
+        //pages with only the news read before the body was truncated, after all the retries
+        int partial = 0;
+        int searches = 0;
+        long start = System.nanoTime();
+        try {
+            for (int b = 0; b < bursts; b++) {
+                //all the requests of a burst start together, like the loaders after a rotation
+                CountDownLatch startSignal = new CountDownLatch(1);
+                List<Future<FetchResult>> results = new ArrayList<>();
+                for (int i = 0; i < burst; i++) {
+                    String url;
+                    if (i < burst * refreshRate) {
+                        url = buildUrl(server.getSearchUrl(), null, SECTIONS[i % SECTIONS.length], pageSize, withBodies);
+                    } else {
+                        url = buildUrl(server.getSearchUrl(), "load" + searches, "all", pageSize, withBodies);
+                        searches++;
+                    }
+                    results.add(executor.submit(new Fetch(url, startSignal, latencies)));
+                }
+                startSignal.countDown();
+                for (Future<FetchResult> result : results) {
+                    FetchResult.Status status = result.get().getStatus();
+                    if (status == FetchResult.Status.PARTIAL) {
+                        partial++;
+                    } else if (status != FetchResult.Status.SUCCESS) {
+                        failures++;
+                    }
+                }
+                Thread.sleep(pauseMs);
+            }
+        } finally {
+            executor.shutdownNow();
+            heapSampler.interrupt();
+            server.stop();
+        }
+        long elapsedNanos = System.nanoTime() - start - bursts * pauseMs * 1000000L;
+        System.gc();
+        long heapAfterGc = usedHeap();
+        printReport(bursts * burst, failures, partial, latencies, elapsedNanos, server, heapSampler.getPeak(), heapAfterGc);
+    }
+
+    private static String buildUrl(String searchUrl, String query, String section, int pageSize, boolean withBodies) {
+        StringBuilder url = new StringBuilder(searchUrl).append("?page-size=").append(pageSize)
+                .append("&show-tags=contributor&order-by=newest&api-key=test");
+        if (withBodies) {
+            url.append("&show-fields=all");
+        }
+        if (query != null) {
+            url.append("&q=").append(query);
+        }
+        if (!section.equals("all")) {
+            url.append("&section=").append(section);
+        }
+        return url.toString();
+    }
+
+    private static void printReport(int requests, int failures, int partial, List<Long> latencies, long elapsedNanos,
+                                    ReplayServer server, long peakHeap, long heapAfterGc) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format(Locale.US, "requests %d, failed %d (%.1f%%), partial %d, %.1f requests/s",
+                requests, failures, failures * 100.0 / requests, partial, requests / seconds));
+        if (!latencies.isEmpty()) {
+            long[] sorted = new long[latencies.size()];
+            synchronized (latencies) {
+                for (int i = 0; i < sorted.length; i++) {
+                    sorted[i] = latencies.get(i);
+                }
+            }
+            Arrays.sort(sorted);
+            System.out.println(String.format(Locale.US, "latency ms: p50 %.1f, p95 %.1f, p99 %.1f, max %.1f",
+                    percentile(sorted, 50) / 1000.0, percentile(sorted, 95) / 1000.0,
+                    percentile(sorted, 99) / 1000.0, sorted[sorted.length - 1] / 1000.0));
+        }
+        System.out.println(String.format(Locale.US, "server: %d requests, %d not modified, %d errors, %d truncated, %.1f MB sent",
+                server.getRequests(), server.getNotModified(), server.getErrors(), server.getTruncated(),
+                server.getBytesSent() / (1024.0 * 1024.0)));
+        System.out.println(String.format(Locale.US, "heap MB: peak %.1f, after gc %.1f",
+                peakHeap / (1024.0 * 1024.0), heapAfterGc / (1024.0 * 1024.0)));
+        System.out.println();
+        System.out.print(Metrics.report());
+    }
+
+    //nearest-rank percentile of sorted values, like the Metrics
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    //the options are given as --name=value
+    private static Map<String, String> parseOptions(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equalIndex = arg.indexOf('=');
+            if (!arg.startsWith("--") || equalIndex < 0) {
+                throw new IOException("Options are written as --name=value: " + arg);
+            }
+            options.put(arg.substring(2, equalIndex), arg.substring(equalIndex + 1));
+        }
+        return options;
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * A request of a burst, it adds its latency in microseconds to the list and returns its result.
+     */
+    private static class Fetch implements Callable<FetchResult> {
+        private final String mUrl;
+        private final CountDownLatch mStartSignal;
+        private final List<Long> mLatencies;
+
+        Fetch(String url, CountDownLatch startSignal, List<Long> latencies) {
+            mUrl = url;
+            mStartSignal = startSignal;
+            mLatencies = latencies;
+        }
+
+        @Override
+        public FetchResult call() throws InterruptedException {
+            mStartSignal.await();
+            long start = System.nanoTime();
+            FetchResult result = RequestPipeline.fetch(mUrl, null);
+            long latency = (System.nanoTime() - start) / 1000;
+            Metrics.record(Metrics.LOAD, latency);
+            synchronized (mLatencies) {
+                mLatencies.add(latency);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Samples the heap used while the load runs, to find its peak.
+     */
+    private static class HeapSampler extends Thread {
+        private volatile long mPeak;
+
+        HeapSampler() {
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    mPeak = Math.max(mPeak, usedHeap());
+                    Thread.sleep(HEAP_SAMPLE_MS);
+                }
+            } catch (InterruptedException e) {
+                //the load is over
+            }
+        }
+
+        long getPeak() {
+            return mPeak;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.android.newsfeedapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in of The Guardian /search, so the app code can be loaded without network and without
+ * an API key. It answers any query, section and page with the recorded response (see {@link Fixtures}),
+ * and it can be slowed down and made to fail like a mobile network: latency, bandwidth, error responses
+ * and bodies cut in the middle.
+ */
+final class ReplayServer {
+    //number of pages of every request
+    private static final int PAGES = 10;
+    //the page size used when the request does not have one, like the real API
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 200;
+    //number of responses kept already built, the ones with bodies are about 1.7 MB for 200 results
+    private static final int MAX_RESPONSES = 64;
+    //the body is written in pieces of this size, so the bandwidth can be limited
+    private static final int CHUNK_SIZE = 8 * 1024;
+    //requests allowed in a minute, as told in the X-RateLimit headers of every answer
+    private static final int RATE_LIMIT_MINUTE = 6000;
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final Random mRandom = new Random(42);
+    private final long mLatencyMs;
+    private final long mJitterMs;
+    private final long mBytesPerSecond;
+    private final double mErrorRate;
+    private final double mTruncateRate;
+    //the responses already built, by request without the page-size and the api-key
+    private final Map<String, byte[]> mResponses = new LinkedHashMap<String, byte[]>(MAX_RESPONSES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_RESPONSES;
+        }
+    };
+
+    //counters shown in the report of the harness
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mNotModified = new AtomicLong();
+    private final AtomicLong mErrors = new AtomicLong();
+    private final AtomicLong mTruncated = new AtomicLong();
+    private final AtomicLong mBytesSent = new AtomicLong();
+
+    /**
+     * @param latencyMs      time waited before every answer
+     * @param jitterMs       random time added to the latency, from 0 to this value
+     * @param bytesPerSecond speed the bodies are written at, 0 for no limit
+     * @param errorRate      fraction of the requests answered with 503
+     * @param truncateRate   fraction of the bodies closed before the end
+     */
+    ReplayServer(long latencyMs, long jitterMs, long bytesPerSecond, double errorRate, double truncateRate) throws IOException {
+        mLatencyMs = latencyMs;
+        mJitterMs = jitterMs;
+        mBytesPerSecond = bytesPerSecond;
+        mErrorRate = errorRate;
+        mTruncateRate = truncateRate;
+        //port 0 picks a free port, only local connections are accepted
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/search", new SearchHandler());
+        mServer.setExecutor(mExecutor);
+    }
+
+    void start() {
+        mServer.start();
+    }
+
+    void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Return the base URL of /search, to use in place of https://content.guardianapis.com/search.
+     */
+    String getSearchUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/search";
+    }
+
+    //getter
+    long getRequests() {
+        return mRequests.get();
+    }
+
+    long getNotModified() {
+        return mNotModified.get();
+    }
+
+    long getErrors() {
+        return mErrors.get();
+    }
+
+    long getTruncated() {
+        return mTruncated.get();
+    }
+
+    long getBytesSent() {
+        return mBytesSent.get();
+    }
+
+    //the decision for every request is taken with the same generator, so two runs fail the same way
+    private synchronized double nextRandom() {
+        return mRandom.nextDouble();
+    }
+
+    private byte[] getResponse(String key, int pageSize, boolean withBodies, int page) throws IOException, JSONException {
+        synchronized (mResponses) {
+            byte[] response = mResponses.get(key + "|" + pageSize);
+            if (response != null) {
+                return response;
+            }
+        }
+        //the ids are different for every query and section, so the news of two searches are not the same
+        byte[] response = Fixtures.searchResponse(pageSize, withBodies, Integer.toHexString(key.hashCode()), page, PAGES);
+        synchronized (mResponses) {
+            mResponses.put(key + "|" + pageSize, response);
+        }
+        return response;
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equalIndex = parameter.indexOf('=');
+            if (equalIndex > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, equalIndex), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(equalIndex + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Answers /search?q=&section=&page=&page-size=&show-fields=, with an ETag so the refreshes get 304.
+     */
+    private class SearchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            mRequests.incrementAndGet();
+            try {
+                Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                int page = parseInt(parameters.get("page"), 1);
+                int pageSize = Math.min(MAX_PAGE_SIZE, Math.max(1, parseInt(parameters.get("page-size"), DEFAULT_PAGE_SIZE)));
+                boolean withBodies = "all".equals(parameters.get("show-fields"));
+                String key = parameters.get("q") + "|" + parameters.get("section") + "|" + parameters.get("order-by")
+                        + "|" + withBodies + "|" + page;
+                String eTag = "\"" + Integer.toHexString((key + "|" + pageSize).hashCode()) + "\"";
+
+                //the time to first byte of a mobile network
+                long delay = mLatencyMs + (long) (nextRandom() * mJitterMs);
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=0");
+                //the limits of the key, the client adjusts its rate limiter to them
+                exchange.getResponseHeaders().set("X-RateLimit-Limit-minute", String.valueOf(RATE_LIMIT_MINUTE));
+                exchange.getResponseHeaders().set("X-RateLimit-Remaining-minute", String.valueOf(RATE_LIMIT_MINUTE));
+                if (nextRandom() < mErrorRate) {
+                    mErrors.incrementAndGet();
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+                if (page < 1 || page > PAGES) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                //the responses never change, so the validator always matches
+                exchange.getResponseHeaders().set("ETag", eTag);
+                if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    mNotModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                byte[] response = getResponse(key, pageSize, withBodies, page);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                //a truncated body is sent chunked and ends in the middle of the JSON, like a response cut by a
+                //proxy; with the full length declared the client would wait for the rest until its timeout
+                int length = response.length;
+                if (nextRandom() < mTruncateRate) {
+                    mTruncated.incrementAndGet();
+                    length = response.length / 2;
+                    exchange.sendResponseHeaders(200, 0);
+                } else {
+                    exchange.sendResponseHeaders(200, response.length);
+                }
+                writeBody(exchange.getResponseBody(), response, length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (JSONException e) {
+                exchange.sendResponseHeaders(500, -1);
+            } catch (IOException e) {
+                //the client closed the connection
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void writeBody(OutputStream output, byte[] response, int length) throws IOException, InterruptedException {
+            for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+                int count = Math.min(CHUNK_SIZE, length - offset);
+                output.write(response, offset, count);
+                output.flush();
+                mBytesSent.addAndGet(count);
+                if (mBytesPerSecond > 0) {
+                    Thread.sleep(count * 1000L / mBytesPerSecond);
+                }
+            }
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.android.newsfeedapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the formatting of the publication dates shown in the list, for every news of a page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NewsFormatterBenchmark {
+    //number of dates formatted in each operation
+    private static final int DATES = 200;
+
+    private String[] mDates;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<NewsList> news = QueryUtils.extractData(new ByteArrayInputStream(Fixtures.searchResponse(DATES, false)));
+        mDates = new String[news.size()];
+        for (int i = 0; i < mDates.length; i++) {
+            mDates[i] = news.get(i).getWebPublicationDate();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DATES)
+    public void formatDate(Blackhole blackhole) {
+        for (String date : mDates) {
+            blackhole.consume(NewsFormatter.formatDate(date));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.newsfeedapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading and parsing a response of The Guardian /search, for pages of different sizes,
+ * with and without the article bodies.
+ * readText is the cost of loading the whole response in a String, that extractData(String) needs;
+ * extractData(InputStream) reads and parses in a single pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QueryUtilsBenchmark {
+    @Param({"10", "50", "100", "200"})
+    public int results;
+
+    @Param({"true", "false"})
+    public boolean withBodies;
+
+    private byte[] mResponse;
+    private String mResponseText;
+
+    @Setup
+    public void setUp() throws Exception {
+        mResponse = Fixtures.searchResponse(results, withBodies);
+        mResponseText = new String(mResponse, Charset.forName("UTF-8"));
+    }
+
+    @Benchmark
+    public String readText() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(mResponse), Charset.forName("UTF-8")));
+        StringBuilder output = new StringBuilder();
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+
+    @Benchmark
+    public List<NewsList> extractDataFromString() {
+        return QueryUtils.extractData(mResponseText);
+    }
+
+    @Benchmark
+    public List<NewsList> extractDataFromStream() throws IOException {
+        return QueryUtils.extractData(new ByteArrayInputStream(mResponse));
+    }
+}
@@ -0,0 +1,17 @@
+package android.util;
+
+/**
+ * JVM replacement of the Android JsonToken, used with {@link JsonReader} by the benchmarks.
+ */
+public enum JsonToken {
+    BEGIN_ARRAY,
+    END_ARRAY,
+    BEGIN_OBJECT,
+    END_OBJECT,
+    NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    END_DOCUMENT
+}
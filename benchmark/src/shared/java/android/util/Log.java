@@ -0,0 +1,50 @@
+package android.util;
+
+/**
+ * JVM replacement of the Android Log, used only by the benchmarks and the load harness: the class of the
+ * Android build writes with a native method. Errors and warnings are printed only if the system property
+ * "newsfeed.log" is true, so the errors caused on purpose by the harness do not flood the report.
+ */
+public final class Log {
+    private static final boolean ENABLED = Boolean.getBoolean("newsfeed.log");
+
+    //this have a private constructor because no one should create an instance of this class.
+    private Log() {
+    }
+
+    public static int v(String tag, String msg) {
+        return 0;
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        return println("W", tag, msg, null);
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        return println("W", tag, msg, tr);
+    }
+
+    public static int e(String tag, String msg) {
+        return println("E", tag, msg, null);
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return println("E", tag, msg, tr);
+    }
+
+    private static int println(String priority, String tag, String msg, Throwable tr) {
+        if (!ENABLED) {
+            return 0;
+        }
+        System.err.println(priority + "/" + tag + ": " + msg + (tr == null ? "" : " " + tr));
+        return 0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.android.newsfeedapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Builds the responses of The Guardian /search used by the benchmarks and by the replay server,
+ * from the recorded one: its results are repeated, with a different id, until the page has the
+ * number of results asked.
+ */
+final class Fixtures {
+    //response recorded with show-tags=contributor&show-fields=all
+    private static final String RECORDED_RESPONSE = "/search_response.json";
+    //the bodies are repeated until they have this length, like a real article
+    private static final int BODY_LENGTH = 8 * 1024;
+
+    //this have a private constructor because no one should create an instance of this class.
+    private Fixtures() {
+    }
+
+    /**
+     * Return the UTF-8 bytes of a response with the given number of results.
+     *
+     * @param results    number of results of the page
+     * @param withBodies true for the fields of show-fields=all, false for only the short description
+     */
+    static byte[] searchResponse(int results, boolean withBodies) throws IOException, JSONException {
+        return searchResponse(results, withBodies, "", 1, 1);
+    }
+
+    /**
+     * Return the UTF-8 bytes of a page of the response of a request.
+     *
+     * @param results     number of results of the page
+     * @param withBodies  true for the fields of show-fields=all, false for only the short description
+     * @param variant     added to the ids of the news, so every request has its own news
+     * @param currentPage number of the page
+     * @param pages       number of pages of the request
+     */
+    static byte[] searchResponse(int results, boolean withBodies, String variant, int currentPage, int pages)
+            throws IOException, JSONException {
+        JSONObject recorded = new JSONObject(readRecorded());
+        JSONArray recordedResults = recorded.getJSONObject("response").getJSONArray("results");
+        JSONArray fixtureResults = new JSONArray();
+        for (int i = 0; i < results; i++) {
+            JSONObject news = new JSONObject(recordedResults.getJSONObject(i % recordedResults.length()).toString());
+            String suffix = variant + "-" + currentPage + "-" + i;
+            news.put("id", news.getString("id") + suffix);
+            news.put("webUrl", news.getString("webUrl") + suffix);
+            JSONObject fields = news.optJSONObject("fields");
+            if (fields == null) {
+                fields = new JSONObject();
+                news.put("fields", fields);
+            }
+            if (withBodies) {
+                fields.put("body", repeat(fields.optString("body", "<p>" + news.getString("webTitle") + "</p>"), BODY_LENGTH));
+            } else {
+                JSONObject trailTextOnly = new JSONObject();
+                trailTextOnly.put("trailText", fields.optString("trailText"));
+                news.put("fields", trailTextOnly);
+            }
+            fixtureResults.put(news);
+        }
+        JSONObject response = recorded.getJSONObject("response");
+        response.put("pageSize", results);
+        response.put("currentPage", currentPage);
+        response.put("pages", pages);
+        response.put("results", fixtureResults);
+        return recorded.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    private static String repeat(String text, int length) {
+        StringBuilder builder = new StringBuilder(text);
+        while (builder.length() < length) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    private static String readRecorded() throws IOException {
+        InputStream inputStream = Fixtures.class.getResourceAsStream(RECORDED_RESPONSE);
+        if (inputStream == null) {
+            throw new IOException("Missing " + RECORDED_RESPONSE);
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+}